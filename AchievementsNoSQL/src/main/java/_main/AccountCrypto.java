@@ -0,0 +1,100 @@
+/**
+ * Envelope encryption of sensitive account attributes (the email) with the AWS Encryption SDK.
+ *
+ * Each value is encrypted locally with a data key, and only the data key is protected by the KMS key. Data keys are cached by a caching
+ * crypto materials manager and reused for a bounded time and number of values, so thousands of accounts can be encrypted or decrypted
+ * with a handful of KMS calls. Decrypting a value whose data key is already cached makes no KMS call at all.
+ *
+ * The encryption context names the table and attribute (not the account), so every value of an attribute can share a cached data key,
+ * while a value copied into a different attribute no longer decrypts.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.encryptionsdk.AwsCrypto;
+import com.amazonaws.encryptionsdk.CryptoMaterialsManager;
+import com.amazonaws.encryptionsdk.CryptoResult;
+import com.amazonaws.encryptionsdk.caching.CachingCryptoMaterialsManager;
+import com.amazonaws.encryptionsdk.caching.LocalCryptoMaterialsCache;
+import com.amazonaws.encryptionsdk.kms.KmsMasterKeyProvider;
+import com.amazonaws.services.kms.AWSKMS;
+
+public class AccountCrypto {
+
+	private static final String TABLE_CONTEXT = "table", ATTRIBUTE_CONTEXT = "attribute";
+
+	private final String table;
+	private final AwsCrypto crypto;
+	private final CryptoMaterialsManager materials;
+
+	/**
+	 * Builds the caching materials manager over the KMS key $keyId, using the data key limits of $settings
+	 * @param table
+	 * 	Table the encrypted attributes belong to (part of the encryption context)
+	 * @param kmsClient
+	 * 	KMS client every data key is generated and decrypted with, so envelope encryption uses the same endpoint, credentials and
+	 * 	client configuration as the rest of the storage
+	 */
+	public AccountCrypto(AchieveSettings settings, String keyId, String table, AWSKMS kmsClient) {
+		this.table = table;
+		this.crypto = new AwsCrypto();
+
+		KmsMasterKeyProvider keyProvider = KmsMasterKeyProvider.builder()
+				.withCustomClientFactory(region -> kmsClient)
+				.withDefaultRegion(settings.getKmsRegion())
+				.withKeysForEncryption(keyId)
+				.build();
+		this.materials = CachingCryptoMaterialsManager.newBuilder()
+				.withMasterKeyProvider(keyProvider)
+				.withCache(new LocalCryptoMaterialsCache(settings.getDataKeyCacheSize()))
+				.withMaxAge(settings.getDataKeyMaxAgeSeconds(), TimeUnit.SECONDS)
+				.withMessageUseLimit(settings.getDataKeyMaxMessages())
+				.build();
+	}
+
+	/**
+	 * Encrypts $value of $attribute
+	 * @return
+	 * 	The encrypted message (stored as a binary attribute)
+	 */
+	public byte[] encrypt(String attribute, String value) {
+		return this.crypto.encryptData(this.materials, value.getBytes(StandardCharsets.UTF_8), this.context(attribute)).getResult();
+	}
+
+	/**
+	 * Decrypts a value of $attribute
+	 * @return
+	 * 	The value
+	 * @throws GeneralSecurityException
+	 * 	If $ciphertext was encrypted for a different table or attribute
+	 */
+	public String decrypt(String attribute, byte[] ciphertext) throws GeneralSecurityException {
+		CryptoResult<byte[], ?> result = this.crypto.decryptData(this.materials, ciphertext);
+		Map<String, String> context = result.getEncryptionContext();
+		if(!this.table.equals(context.get(TABLE_CONTEXT)) || !attribute.equals(context.get(ATTRIBUTE_CONTEXT))) {
+			throw new GeneralSecurityException("Encrypted value does not belong to " + this.table + "." + attribute);
+		}
+		return new String(result.getResult(), StandardCharsets.UTF_8);
+	}
+
+	private Map<String, String> context(String attribute) {
+		Map<String, String> context = new HashMap<String, String>();
+		context.put(TABLE_CONTEXT, this.table);
+		context.put(ATTRIBUTE_CONTEXT, attribute);
+		return context;
+	}
+}
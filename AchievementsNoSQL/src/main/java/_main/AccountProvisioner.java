@@ -0,0 +1,246 @@
+/**
+ * Creates artist accounts in bulk from a CSV user list, for onboarding a whole studio at once.
+ *
+ * Rows are read one at a time and handed to a pool of workers, and each worker creates its account exactly as signing up does: it hashes
+ * (and encrypts) the password and then writes the account with a conditional put, so an existing username is never overwritten. Hashing
+ * is the slow part, so it runs on every worker in parallel while other workers' puts are in flight. Only a bounded number of rows wait
+ * for a worker, and nothing is kept per row, which keeps memory flat however long the list is.
+ * BatchWriteItem cannot check that a username is free, so each account is its own conditional put rather than part of a batch. The same
+ * conditional put catches a username repeated in the list: the first of its rows to be written is created and the rest are conflicts.
+ *
+ * Usernames that were already taken (or repeated in the list) are conflicts: they are counted, the first few are reported, and all of
+ * them are written one per line to <file>.conflicts.
+ *
+ * CSV: a header row naming the columns username, email and password (in any order), then one row per account.
+ *
+ * Usage: AccountProvisioner <file> [--threads n]
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import _main.AchieveStorage.CreateResult;
+
+public class AccountProvisioner {
+
+	/**
+	 * Counts of what happened to the rows of a user list
+	 */
+	public static class Stats {
+		public long read = 0;
+		public long created = 0;
+		public long conflicts = 0;
+		public long invalid = 0;
+		public long failed = 0;
+		public long millis = 0;
+
+		@Override
+		public String toString() {
+			double accountsPerSecond = (this.millis == 0) ? this.created : this.created * 1000.0 / this.millis;
+			return this.read + " rows in " + this.millis + " ms (" + Math.round(accountsPerSecond) + " accounts/s): " + this.created + " created, "
+					+ this.conflicts + " conflicts, " + this.invalid + " invalid, " + this.failed + " failed";
+		}
+	}
+
+	private static final int MAX_REPORTED = 20;				//Conflicts and invalid rows reported individually before only being counted
+	private static final int QUEUED_PER_THREAD = 4;			//Rows that can wait for each worker before reading waits
+	private static final int MAX_USERNAME_BYTES = 2048;		//DynamoDB limit on the size of a partition key value
+
+	private final AchieveSettings settings;
+	private final int threads;
+
+	private Stats stats;
+	private BufferedWriter conflicts;
+
+	/**
+	 * @param settings
+	 * 	Settings holding the storage to create the accounts in (connected)
+	 * @param threads
+	 * 	Accounts created at the same time
+	 */
+	public AccountProvisioner(AchieveSettings settings, int threads) {
+		this.settings = settings;
+		this.threads = threads;
+	}
+
+	/**
+	 * Creates an account for every row of $file
+	 * @return
+	 * 	Counts of what happened to the rows
+	 */
+	public Stats provisionFile(File file) throws IOException, InterruptedException {
+		this.stats = new Stats();
+
+		final AtomicInteger count = new AtomicInteger();
+		ExecutorService workers = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "provision-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		Semaphore queued = new Semaphore(this.threads * QUEUED_PER_THREAD);
+
+		long start = System.nanoTime();
+		File conflictFile = new File(file.getPath() + ".conflicts");
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16);
+				BufferedWriter conflicts = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(conflictFile), StandardCharsets.UTF_8))) {
+			this.conflicts = conflicts;
+
+			/*
+			 * Find the columns from the header row
+			 */
+			long[] lineNumber = {0};
+			List<String> header = AchievementImporter.readCsvRecord(reader, lineNumber);
+			int usernameColumn = -1, emailColumn = -1, passwordColumn = -1;
+			for(int i = 0; header != null && i < header.size(); i++) {
+				switch (header.get(i).trim()) {
+					case "username":
+						usernameColumn = i;
+						break;
+					case "email":
+						emailColumn = i;
+						break;
+					case "password":
+						passwordColumn = i;
+						break;
+					default:
+						System.err.println("[WARNING] Ignoring unknown column: " + header.get(i));
+				}
+			}
+			if(usernameColumn < 0 || passwordColumn < 0) throw new IOException("The header row needs username and password columns.");
+
+			/*
+			 * Hand each valid row to the workers
+			 */
+			for(List<String> fields = AchievementImporter.readCsvRecord(reader, lineNumber); fields != null; fields = AchievementImporter.readCsvRecord(reader, lineNumber)) {
+				if(fields.size() == 1 && fields.get(0).isEmpty()) continue;		//Blank line
+				this.stats.read++;
+
+				if(fields.size() != header.size()) {
+					this.reject(lineNumber[0], "expected " + header.size() + " fields but found " + fields.size());
+					continue;
+				}
+				String username = fields.get(usernameColumn).trim(), password = fields.get(passwordColumn);
+				String email = (emailColumn < 0) ? "" : fields.get(emailColumn).trim();
+				if(username.isEmpty() || password.isEmpty()) {
+					this.reject(lineNumber[0], "username and password are required");
+				} else if(username.startsWith("#") || username.getBytes(StandardCharsets.UTF_8).length > MAX_USERNAME_BYTES) {
+					this.reject(lineNumber[0], "invalid username " + username);		//# names are kept for the storage's own items
+				} else {
+					queued.acquire();
+					workers.execute(() -> {
+						try {
+							this.create(username, email, password);
+						} finally {
+							queued.release();
+						}
+					});
+				}
+			}
+
+			workers.shutdown();
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} finally {
+			workers.shutdownNow();
+			this.stats.millis = (System.nanoTime() - start) / 1000000;
+		}
+
+		if(this.stats.conflicts > 0) System.err.println("[WARNING] Wrote " + this.stats.conflicts + " conflicting usernames to " + conflictFile.getName());
+		else if(!conflictFile.delete()) System.err.println("[WARNING] Could not remove empty " + conflictFile.getName());
+		return this.stats;
+	}
+
+	/**
+	 * Creates a single account (on a worker)
+	 */
+	private void create(String username, String email, String password) {
+		CreateResult result = CreateResult.FAILED;
+		try {
+			result = this.settings.storage.createAccount(username, email, password, this.settings);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not create account " + username);
+			System.err.println(e.getMessage());
+		}
+
+		synchronized(this) {
+			switch (result) {
+				case CREATED:
+					this.stats.created++;
+					break;
+				case ALREADY_EXISTS:
+					this.conflict(username, "is already taken (or repeated in the list)");
+					break;
+				default:
+					this.stats.failed++;
+			}
+		}
+	}
+
+	/**
+	 * Counts (and records) a username that could not be created because it is taken
+	 */
+	private synchronized void conflict(String username, String reason) {
+		if(++this.stats.conflicts <= MAX_REPORTED) System.err.println("[WARNING] Username " + username + " " + reason + ".");
+		try {
+			this.conflicts.write(username);
+			this.conflicts.newLine();
+		} catch (IOException e) {
+			System.err.println("[ERROR] Could not record conflicting username " + username);
+			System.err.println(e.getMessage());
+		}
+	}
+
+	/**
+	 * Counts (and reports) a row that is not a valid account
+	 */
+	private synchronized void reject(long lineNumber, String reason) {
+		if(++this.stats.invalid <= MAX_REPORTED) System.err.println("[WARNING] Skipping line " + lineNumber + ": " + reason);
+	}
+
+	public static void main(String[] args) {
+		if(args.length < 1) {
+			System.err.println("Usage: AccountProvisioner <file> [--threads n]");
+			return;
+		}
+		File file = new File(args[0]);
+		int threads = Runtime.getRuntime().availableProcessors() * 2;
+		for(int i = 1; i < args.length; i++) {
+			if(args[i].equals("--threads") && i + 1 < args.length) threads = Math.max(1, Integer.parseInt(args[++i]));
+		}
+
+		AchieveSettings settings = new AchieveSettings(Achievements.DATABASE_CONFIG_ADDRESS, Achievements.ACCOUNT_CONFIG_ADDRESS,
+				Achievements.MISSING_IMAGE_ADDRESS, Achievements.LOCKED_IMAGE_ADDRESS);
+		settings.storage.connect(settings);
+		try {
+			Stats stats = new AccountProvisioner(settings, threads).provisionFile(file);
+			System.err.println(((stats.invalid + stats.failed == 0) ? "[SUCCESS] " : "[WARNING] ") + "Provisioned " + file.getName() + ": " + stats);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not provision " + file.getName());
+			System.err.println(e.getMessage());
+		} finally {
+			settings.storage.close();
+		}
+	}
+}
@@ -35,6 +35,7 @@ public class AchieveSettings {
 	private Properties databaseConfig;
 	private Properties accountConfig;
 	public AchieveStorage storage;
+	public AsyncStorage asyncStorage;
 	
 	
 	/**
@@ -53,10 +54,39 @@ public class AchieveSettings {
 		this.accountAddress = accountConfigAddress;
 		this.missingImageAddress = missingImageAddress;
 		this.lockedImageAddress = lockedImageAddress;
-		this.storage = new AchieveStorage();
 		
 		createDbConfig(dbConfigAddress);
 		createAccountConfig(accountConfigAddress);
+		this.storage = this.createStorage();
+		this.asyncStorage = new AsyncStorage(this, this.getStorageThreads());
+	}
+	
+	/**
+	 * Creates (but does not connect) the storage chosen by the database properties.
+	 * A storageType of dynamodb, local or memory picks that storage, otherwise useLocal picks between local and DynamoDB storage.
+	 * Unless cacheSeconds is 0 the storage is wrapped in a read-through cache.
+	 * 
+	 * @return
+	 * 	The new storage
+	 */
+	public AchieveStorage createStorage() {
+		AchieveStorage storage;
+		switch (this.getStorageType()) {
+			case "dynamodb":
+				storage = new DynamoStorage();
+				break;
+			case "local":
+				storage = new LocalStorage();
+				break;
+			case "memory":
+				storage = new MemoryStorage();
+				break;
+			default:
+				storage = this.getUseLocal() ? new LocalStorage() : new DynamoStorage();
+		}
+		
+		int cacheSeconds = this.getCacheSeconds();
+		return (cacheSeconds > 0) ? new CachingStorage(storage, cacheSeconds, this.getCacheMaxWeight()) : storage;
 	}
 	
 	
@@ -65,10 +95,42 @@ public class AchieveSettings {
 	 * 
 	 * Properties (name: default value):
 	 * 		useLocal: true
+	 * 		storageType: ""
+	 * 		localDirectory: config/local
+	 * 		storageThreads: 8
+	 * 		cacheSeconds: 30
+	 * 		cacheMaxWeight: 100000
 	 * 		awsAccessKey: ""
 	 * 		awsSecretKey: ""
 	 * 		awsEndpoint: ""
 	 * 		awsRegion: ""
+	 * 		scanPageSize: 0
+	 * 		scanThreads: 0
+	 * 		reconcileMinutes: 60
+	 * 		batchWritesInFlight: 4
+	 * 		writeBehindMillis: 0
+	 * 		progressFlushMillis: 50
+	 * 		awsMaxConnections: 50
+	 * 		awsConnectionTimeoutMillis: 10000
+	 * 		awsSocketTimeoutMillis: 50000
+	 * 		awsRequestTimeoutMillis: 30000
+	 * 		awsMaxIdleMillis: 60000
+	 * 		awsTcpKeepAlive: true
+	 * 		awsGzip: false
+	 * 		awsMaxRetries: 10
+	 * 		awsWarmConnections: 4
+	 * 		databaseConnectTimeoutMillis: 15000
+	 * 		kmsConnectTimeoutMillis: 15000
+	 * 		driveConnectTimeoutMillis: 120000
+	 * 		passwordHashIterations: 120000
+	 * 		passwordPepper: false
+	 * 		encryptAccounts: true
+	 * 		dataKeyCacheSize: 100
+	 * 		dataKeyMaxAgeSeconds: 300
+	 * 		dataKeyMaxMessages: 1000
+	 * 		sessionDays: 30
+	 * 		imageLoadThreads: 4
+	 * 		imageCacheSize: 256
 	 * 
 	 * @param address
 	 * 	Address of the file to load
@@ -98,12 +160,56 @@ public class AchieveSettings {
 		 * Check to see if any properties are missing.
 		 */
 		if(!dbConfig.containsKey("useLocal")) dbConfig.put("useLocal", "true");
+		if(!dbConfig.containsKey("storageType")) dbConfig.put("storageType", "");
+		if(!dbConfig.containsKey("localDirectory")) dbConfig.put("localDirectory", "config/local");
+		if(!dbConfig.containsKey("storageThreads")) dbConfig.put("storageThreads", "8");
+		if(!dbConfig.containsKey("cacheSeconds")) dbConfig.put("cacheSeconds", "30");
+		if(!dbConfig.containsKey("cacheMaxWeight")) dbConfig.put("cacheMaxWeight", "100000");
 		
 		//AWS DynamoDB settings
 		if(!dbConfig.containsKey("dynamoDbAccessKey")) dbConfig.put("dynamoDbAccessKey", "");
 		if(!dbConfig.containsKey("dynamoDbSecretKey")) dbConfig.put("dynamoDbSecretKey", "");
 		if(!dbConfig.containsKey("dynamoDbEndpoint")) dbConfig.put("dynamoDbEndpoint", "");
 		if(!dbConfig.containsKey("dynamoDbRegion")) dbConfig.put("dynamoDbRegion", "");
+		if(!dbConfig.containsKey("scanPageSize")) dbConfig.put("scanPageSize", "0");
+		if(!dbConfig.containsKey("scanThreads")) dbConfig.put("scanThreads", "0");
+		if(!dbConfig.containsKey("reconcileMinutes")) dbConfig.put("reconcileMinutes", "60");
+		if(!dbConfig.containsKey("batchWritesInFlight")) dbConfig.put("batchWritesInFlight", "4");
+		if(!dbConfig.containsKey("writeBehindMillis")) dbConfig.put("writeBehindMillis", "0");
+		if(!dbConfig.containsKey("progressFlushMillis")) dbConfig.put("progressFlushMillis", "50");
+		
+		//AWS HTTP client settings (shared by DynamoDB and KMS)
+		if(!dbConfig.containsKey("awsMaxConnections")) dbConfig.put("awsMaxConnections", "50");
+		if(!dbConfig.containsKey("awsConnectionTimeoutMillis")) dbConfig.put("awsConnectionTimeoutMillis", "10000");
+		if(!dbConfig.containsKey("awsSocketTimeoutMillis")) dbConfig.put("awsSocketTimeoutMillis", "50000");
+		if(!dbConfig.containsKey("awsRequestTimeoutMillis")) dbConfig.put("awsRequestTimeoutMillis", "30000");
+		if(!dbConfig.containsKey("awsMaxIdleMillis")) dbConfig.put("awsMaxIdleMillis", "60000");
+		if(!dbConfig.containsKey("awsTcpKeepAlive")) dbConfig.put("awsTcpKeepAlive", "true");
+		if(!dbConfig.containsKey("awsGzip")) dbConfig.put("awsGzip", "false");
+		if(!dbConfig.containsKey("awsMaxRetries")) dbConfig.put("awsMaxRetries", "10");
+		if(!dbConfig.containsKey("awsWarmConnections")) dbConfig.put("awsWarmConnections", "4");
+		
+		//Connection timeouts (how long each backend is waited on before it is treated as unavailable)
+		if(!dbConfig.containsKey("databaseConnectTimeoutMillis")) dbConfig.put("databaseConnectTimeoutMillis", "15000");
+		if(!dbConfig.containsKey("kmsConnectTimeoutMillis")) dbConfig.put("kmsConnectTimeoutMillis", "15000");
+		if(!dbConfig.containsKey("driveConnectTimeoutMillis")) dbConfig.put("driveConnectTimeoutMillis", "120000");
+		
+		//Password hashing settings
+		if(!dbConfig.containsKey("passwordHashIterations")) dbConfig.put("passwordHashIterations", "120000");
+		if(!dbConfig.containsKey("passwordPepper")) dbConfig.put("passwordPepper", "false");
+		
+		//Account encryption settings (how long and how often a data key from KMS is reused)
+		if(!dbConfig.containsKey("encryptAccounts")) dbConfig.put("encryptAccounts", "true");
+		if(!dbConfig.containsKey("dataKeyCacheSize")) dbConfig.put("dataKeyCacheSize", "100");
+		if(!dbConfig.containsKey("dataKeyMaxAgeSeconds")) dbConfig.put("dataKeyMaxAgeSeconds", "300");
+		if(!dbConfig.containsKey("dataKeyMaxMessages")) dbConfig.put("dataKeyMaxMessages", "1000");
+		
+		//Remembered login settings
+		if(!dbConfig.containsKey("sessionDays")) dbConfig.put("sessionDays", "30");
+		
+		//Achievement image settings
+		if(!dbConfig.containsKey("imageLoadThreads")) dbConfig.put("imageLoadThreads", "4");
+		if(!dbConfig.containsKey("imageCacheSize")) dbConfig.put("imageCacheSize", "256");
 		
 		//AWS KMS settings
 		if(!dbConfig.containsKey("kmsAccessKey")) dbConfig.put("kmsAccessKey", "");
@@ -130,6 +236,8 @@ public class AchieveSettings {
 	 * Properties (name: default value):
 	 * 		username: ""
 	 * 		rememberLogin: false
+	 * 		sessionToken: ""
+	 * 		sessionAccountType: ""
 	 * 
 	 * @param address
 	 * 	Address of the file to load
@@ -158,8 +266,9 @@ public class AchieveSettings {
 		 * Check to see if any properties are missing.
 		 */
 		if(!accountConfig.containsKey("username")) accountConfig.put("username", "");
-		if(!accountConfig.containsKey("password")) accountConfig.put("password", "");
 		if(!accountConfig.containsKey("rememberLogin")) accountConfig.put("rememberLogin", "false");
+		if(!accountConfig.containsKey("sessionToken")) accountConfig.put("sessionToken", "");
+		if(!accountConfig.containsKey("sessionAccountType")) accountConfig.put("sessionAccountType", "");
 		
 		this.accountConfig = accountConfig;
 		
@@ -198,6 +307,21 @@ public class AchieveSettings {
 	/**Get useLocal (T/F if using file system for storage)*/
 	public boolean getUseLocal() {return this.databaseConfig.getProperty("useLocal").equals("true");}
 	
+	/**Get storage type (dynamodb, local or memory; blank follows useLocal)*/
+	public String getStorageType() {return this.databaseConfig.getProperty("storageType").trim().toLowerCase();}
+	
+	/**Get local directory (where local storage keeps its files)*/
+	public String getLocalDirectory() {return this.databaseConfig.getProperty("localDirectory");}
+	
+	/**Get storage threads (most asynchronous storage operations running at the same time, at least 1)*/
+	public int getStorageThreads() {return this.intProperty("storageThreads", 1, 1);}
+	
+	/**Get cache seconds (how long read results are cached for, 0 disables the cache)*/
+	public int getCacheSeconds() {return this.intProperty("cacheSeconds", 0, 0);}
+	
+	/**Get cache max weight (most categories and achievements held by the cache)*/
+	public long getCacheMaxWeight() {return this.longProperty("cacheMaxWeight", 100000, 1);}
+	
 	/**Get dynamoDb access key*/
 	public String getDynamoDbAccessKey() {return this.databaseConfig.getProperty("dynamoDbAccessKey");}
 	
@@ -210,6 +334,90 @@ public class AchieveSettings {
 	/**Get dynamoDb region*/
 	public String getDynamoDbRegion() {return this.databaseConfig.getProperty("dynamoDbRegion");}
 	
+	/**Get scan page size (max items evaluated per DynamoDB scan page, 0 lets DynamoDB fill 1 MB pages)*/
+	public int getScanPageSize() {return this.intProperty("scanPageSize", 0, 0);}
+	
+	/**Get scan threads (threads used for parallel scans, 0 uses one per processor)*/
+	public int getScanThreads() {
+		int threads = this.intProperty("scanThreads", 0, 0);
+		return (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**Get reconcile minutes (minutes between rebuilding the category summaries, 0 disables it)*/
+	public int getReconcileMinutes() {return this.intProperty("reconcileMinutes", 0, 0);}
+	
+	/**Get batch writes in flight (most BatchWriteItem requests sent at the same time, at least 1)*/
+	public int getBatchWritesInFlight() {return this.intProperty("batchWritesInFlight", 1, 1);}
+	
+	/**Get write behind millis (most time achievement image changes are queued before being written to DynamoDB, 0 writes immediately)*/
+	public long getWriteBehindMillis() {return this.longProperty("writeBehindMillis", 0, 0);}
+	
+	/**Get progress flush millis (increments of the same achievement within this time are sent as one update, 0 sends each increment)*/
+	public long getProgressFlushMillis() {return this.longProperty("progressFlushMillis", 0, 0);}
+	
+	/**Get AWS max connections (most open HTTP connections per client, at least 1)*/
+	public int getAwsMaxConnections() {return this.intProperty("awsMaxConnections", 50, 1);}
+	
+	/**Get AWS connection timeout millis (most time to open a connection, 0 waits forever)*/
+	public int getAwsConnectionTimeoutMillis() {return this.intProperty("awsConnectionTimeoutMillis", 10000, 0);}
+	
+	/**Get AWS socket timeout millis (most time to wait for data on an open connection, 0 waits forever)*/
+	public int getAwsSocketTimeoutMillis() {return this.intProperty("awsSocketTimeoutMillis", 50000, 0);}
+	
+	/**Get AWS request timeout millis (most time a single request attempt can take, 0 for no limit)*/
+	public int getAwsRequestTimeoutMillis() {return this.intProperty("awsRequestTimeoutMillis", 30000, 0);}
+	
+	/**Get AWS max idle millis (how long an unused connection is kept open)*/
+	public int getAwsMaxIdleMillis() {return this.intProperty("awsMaxIdleMillis", 60000, 0);}
+	
+	/**Get AWS max retries (retries of a failed request, with exponential backoff)*/
+	public int getAwsMaxRetries() {return this.intProperty("awsMaxRetries", 10, 0);}
+	
+	/**Get AWS warm connections (DynamoDB connections opened in the background when connecting, 0 opens them on first use)*/
+	public int getAwsWarmConnections() {return this.intProperty("awsWarmConnections", 4, 0);}
+	
+	/**Get database connect timeout millis (how long startup waits on the storage, 0 waits until it connects)*/
+	public long getDatabaseConnectTimeoutMillis() {return this.longProperty("databaseConnectTimeoutMillis", 15000, 0);}
+	
+	/**Get KMS connect timeout millis (how long startup waits on KMS, 0 waits until it connects)*/
+	public long getKmsConnectTimeoutMillis() {return this.longProperty("kmsConnectTimeoutMillis", 15000, 0);}
+	
+	/**Get Google Drive connect timeout millis (how long an upload waits on Drive authorization, 0 waits until it connects)*/
+	public long getDriveConnectTimeoutMillis() {return this.longProperty("driveConnectTimeoutMillis", 120000, 0);}
+	
+	/**Get password hash iterations (PBKDF2 iterations of new password hashes, older hashes are replaced on login)*/
+	public int getPasswordHashIterations() {return this.intProperty("passwordHashIterations", 120000, 1);}
+	
+	/**Get password pepper (true to also key password hashes with a secret protected by the KMS key)*/
+	public boolean getPasswordPepper() {return this.booleanProperty("passwordPepper");}
+	
+	/**Get encrypt accounts (true to envelope encrypt the email of new accounts, password hashes are never encrypted)*/
+	public boolean getEncryptAccounts() {return this.booleanProperty("encryptAccounts");}
+	
+	/**Get data key cache size (most data keys kept for reuse, at least 1)*/
+	public int getDataKeyCacheSize() {return this.intProperty("dataKeyCacheSize", 100, 1);}
+	
+	/**Get data key max age seconds (how long a data key is reused, at least 1)*/
+	public long getDataKeyMaxAgeSeconds() {return this.longProperty("dataKeyMaxAgeSeconds", 300, 1);}
+	
+	/**Get data key max messages (how many values a data key encrypts before a new one is fetched, at least 1)*/
+	public long getDataKeyMaxMessages() {return this.longProperty("dataKeyMaxMessages", 1000, 1);}
+	
+	/**Get session days (how long a remembered login lasts without being used, at least 1)*/
+	public int getSessionDays() {return this.intProperty("sessionDays", 30, 1);}
+	
+	/**Get image load threads (achievement images downloaded and decoded at the same time, at least 1)*/
+	public int getImageLoadThreads() {return this.intProperty("imageLoadThreads", 4, 1);}
+	
+	/**Get image cache size (achievement images kept in memory after loading, 0 keeps none)*/
+	public int getImageCacheSize() {return this.intProperty("imageCacheSize", 256, 0);}
+	
+	/**Get AWS TCP keep-alive (true to send keep-alive packets on idle connections)*/
+	public boolean getAwsTcpKeepAlive() {return this.booleanProperty("awsTcpKeepAlive");}
+	
+	/**Get AWS gzip (true to ask for gzipped responses, trading CPU for bandwidth)*/
+	public boolean getAwsGzip() {return this.booleanProperty("awsGzip");}
+	
 	/**Get KMS access key*/
 	public String getKmsAccessKey() {return this.databaseConfig.getProperty("kmsAccessKey");}
 	
@@ -225,12 +433,18 @@ public class AchieveSettings {
 	/**Get user-name*/
 	public String getUsername() {return this.accountConfig.getProperty("username");}
 	
-	/**Get password*/
-	public String getPassword() {return this.accountConfig.getProperty("password");}
+	/**Get password (only remembered by older versions, it is replaced with a session token on the next start)*/
+	public String getPassword() {return this.accountConfig.getProperty("password", "");}
 	
-	/**Get rememberLogin (T/F iff we remember the login password)*/
+	/**Get rememberLogin (T/F iff we remember the login session)*/
 	public boolean getRememberLogin() {return this.accountConfig.getProperty("rememberLogin").equals("true");}
 	
+	/**Get session token (signed and expiring, from the last login)*/
+	public String getSessionToken() {return this.accountConfig.getProperty("sessionToken");}
+	
+	/**Get session account type (account type when the session token was made, used until it is checked)*/
+	public String getSessionAccountType() {return this.accountConfig.getProperty("sessionAccountType");}
+	
 	/**Get isLoggedIn*/
 	public boolean getIsLoggedIn() {return this.isLoggedIn;}
 	
@@ -243,6 +457,34 @@ public class AchieveSettings {
 	/**Get GoogleDrive client secret*/
 	public String getDriveSecretId() {return this.databaseConfig.getProperty("driveClientSecret");}
 	
+	/**
+	 * @return
+	 * 	The whole number property $name, at least $min, or $defaultValue if it is not a number
+	 */
+	private int intProperty(String name, int defaultValue, int min) {
+		return (int) Math.min(Integer.MAX_VALUE, this.longProperty(name, defaultValue, min));
+	}
+	
+	/**
+	 * @return
+	 * 	The whole number property $name, at least $min, or $defaultValue if it is not a number
+	 */
+	private long longProperty(String name, long defaultValue, long min) {
+		long value = defaultValue;
+		try {
+			value = Long.parseLong(this.databaseConfig.getProperty(name).trim());
+		} catch (NumberFormatException e) {
+			System.err.println("[WARNING] Invalid " + name + " property, using " + defaultValue + ".");
+		}
+		return Math.max(min, value);
+	}
+	
+	/**
+	 * @return
+	 * 	Whether the property $name is true
+	 */
+	private boolean booleanProperty(String name) {return this.databaseConfig.getProperty(name).trim().equals("true");}
+	
 	//Setter operations ------------------------------------------------------
 	
 	/**Set useLocal (T/F if using file-system for storage)*/
@@ -275,12 +517,21 @@ public class AchieveSettings {
 	/**Set user-name*/
 	public void setUsername(String username) {this.accountConfig.setProperty("username", username);}
 	
-	/**Set password*/
-	public void setPassword(String password) {this.accountConfig.setProperty("password", password);}
+	/**Set password (an empty password is removed from the properties)*/
+	public void setPassword(String password) {
+		if(password.isEmpty()) this.accountConfig.remove("password");
+		else this.accountConfig.setProperty("password", password);
+	}
 	
 	/**Set rememberLogin*/
 	public void setRememberLogin(boolean rememberLogin) {this.accountConfig.setProperty("rememberLogin", Boolean.toString(rememberLogin));}
 	
+	/**Set session token*/
+	public void setSessionToken(String token) {this.accountConfig.setProperty("sessionToken", token);}
+	
+	/**Set session account type*/
+	public void setSessionAccountType(String accountType) {this.accountConfig.setProperty("sessionAccountType", accountType);}
+	
 	/**Set isLoggedIn*/
 	public void setIsLoggedIn(boolean isLoggedIn) {this.isLoggedIn = isLoggedIn;}
 	
@@ -0,0 +1,292 @@
+/**
+ * Compact, read-only, columnar model of a whole achievement catalog.
+ *
+ * Every string (titles, categories, descriptions and image URLs) is stored once in a dictionary, and each achievement is a row across
+ * primitive int columns: the dictionary ids of its strings, and its progress. Rows are sorted by category and then title, so each
+ * category is a contiguous slice of the columns. Reading a category is a slice, finding an achievement is a binary search within it, and
+ * summing progress walks the int columns in order.
+ * A catalog of a million achievements costs a few int arrays plus its distinct strings, with no per-achievement objects or map entries.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import _main.AchieveStorage.Achievement;
+
+public final class AchievementCatalog {
+
+	/**
+	 * Collects achievements in any order, then sorts them into a catalog
+	 */
+	public static final class Builder {
+		private final List<String> strings = new ArrayList<String>();
+		private final Map<String, Integer> ids = new HashMap<String, Integer>();
+		private int[] title = new int[1024], category = new int[1024], description = new int[1024], imageURL = new int[1024];
+		private int[] currentProg = new int[1024], maxProg = new int[1024];
+		private int size = 0;
+
+		/**
+		 * Adds an achievement ((title, category) should be unique)
+		 */
+		public Builder add(String title, String category, String description, int currentProg, int maxProg, String imageURL) {
+			if(this.size == this.title.length) {
+				int capacity = this.size * 2;
+				this.title = Arrays.copyOf(this.title, capacity);
+				this.category = Arrays.copyOf(this.category, capacity);
+				this.description = Arrays.copyOf(this.description, capacity);
+				this.imageURL = Arrays.copyOf(this.imageURL, capacity);
+				this.currentProg = Arrays.copyOf(this.currentProg, capacity);
+				this.maxProg = Arrays.copyOf(this.maxProg, capacity);
+			}
+			this.title[this.size] = this.intern(title);
+			this.category[this.size] = this.intern(category);
+			this.description[this.size] = this.intern(description);
+			this.imageURL[this.size] = this.intern((imageURL == null) ? AchieveStorage.MISSING_IMAGE_TEXT : imageURL);
+			this.currentProg[this.size] = currentProg;
+			this.maxProg[this.size] = maxProg;
+			this.size++;
+			return this;
+		}
+
+		/**
+		 * @return
+		 * 	Dictionary id of $value (-1 for null)
+		 */
+		private int intern(String value) {
+			if(value == null) return -1;
+			Integer id = this.ids.get(value);
+			if(id == null) {
+				id = this.strings.size();
+				this.strings.add(value);
+				this.ids.put(value, id);
+			}
+			return id;
+		}
+
+		/**
+		 * Sorts the rows by category and then title into a catalog. The builder is not used afterwards.
+		 */
+		public AchievementCatalog build() {
+			String[] dictionary = this.strings.toArray(new String[0]);
+
+			/*
+			 * Rank every distinct string in sort order, so rows are ordered by comparing ints
+			 */
+			String[] sorted = dictionary.clone();
+			Arrays.sort(sorted);
+			int[] byRank = new int[dictionary.length], rank = new int[dictionary.length];
+			for(int i = 0; i < sorted.length; i++) {
+				byRank[i] = this.ids.get(sorted[i]);
+				rank[byRank[i]] = i;
+			}
+
+			/*
+			 * Bucket the rows by category in category order, then sort each bucket by title.
+			 * A row is sorted as its title's rank in the high half of a long and the row itself in the low half, so nothing is boxed.
+			 */
+			int[] rows = new int[dictionary.length], next = new int[dictionary.length];
+			for(int row = 0; row < this.size; row++) {
+				rows[this.category[row]]++;
+			}
+			int offset = 0;
+			for(int id : byRank) {
+				next[id] = offset;
+				offset += rows[id];
+			}
+			long[] order = new long[this.size];
+			for(int row = 0; row < this.size; row++) {
+				order[next[this.category[row]]++] = ((long) rank[this.title[row]] << 32) | row;
+			}
+			offset = 0;
+			for(int id : byRank) {
+				Arrays.sort(order, offset, offset + rows[id]);
+				offset += rows[id];
+			}
+
+			AchievementCatalog catalog = new AchievementCatalog(dictionary, this.size);
+			LinkedHashMap<String, int[]> ranges = new LinkedHashMap<String, int[]>();
+			for(int row = 0; row < this.size; row++) {
+				int from = (int) order[row];
+				catalog.title[row] = this.title[from];
+				catalog.category[row] = this.category[from];
+				catalog.description[row] = this.description[from];
+				catalog.imageURL[row] = this.imageURL[from];
+				catalog.currentProg[row] = this.currentProg[from];
+				catalog.maxProg[row] = this.maxProg[from];
+
+				int[] range = ranges.get(dictionary[catalog.category[row]]);
+				if(range == null) ranges.put(dictionary[catalog.category[row]], new int[] {row, row + 1});
+				else range[1] = row + 1;
+			}
+			catalog.categories = Collections.unmodifiableMap(ranges);
+			return catalog;
+		}
+	}
+
+	/**
+	 * The achievements of a single category, in title order, as a view of the catalog's columns
+	 */
+	public final class Slice {
+		private final int from, to;
+
+		private Slice(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		public int size() {return this.to - this.from;}
+
+		public String getTitle(int i) {return string(title[this.from + i]);}
+
+		public String getDescription(int i) {return string(description[this.from + i]);}
+
+		public String getImageURL(int i) {return string(imageURL[this.from + i]);}
+
+		public int getCurrentProg(int i) {return currentProg[this.from + i];}
+
+		public int getMaxProg(int i) {return maxProg[this.from + i];}
+
+		public boolean needsImage(int i) {return imageURL[this.from + i] == missingImageId;}
+
+		/**
+		 * Binary search for $title
+		 * @return
+		 * 	Index of $title within the slice, or -1 if it is not in the category
+		 */
+		public int indexOf(String title) {
+			int low = 0, high = this.size() - 1;
+			while(low <= high) {
+				int middle = (low + high) >>> 1;
+				int compare = this.getTitle(middle).compareTo(title);
+				if(compare < 0) low = middle + 1;
+				else if(compare > 0) high = middle - 1;
+				else return middle;
+			}
+			return -1;
+		}
+
+		/**
+		 * Sums the progress of the slice in a single pass over the columns
+		 */
+		public CategoryProgress getProgress() {
+			CategoryProgress progress = new CategoryProgress();
+			for(int row = this.from; row < this.to; row++) {
+				progress.currentProg += currentProg[row];
+				progress.maxProg += maxProg[row];
+			}
+			progress.achievements = this.size();
+			return progress;
+		}
+
+		/**
+		 * Copies the slice into the map of achievements the windows display
+		 */
+		public Map<String, Achievement> toAchievements() {
+			Map<String, Achievement> achievements = new TreeMap<String, Achievement>();
+			for(int i = 0; i < this.size(); i++) {
+				Achievement achievement = new Achievement();
+				achievement.description = this.getDescription(i);
+				achievement.currentProg = this.getCurrentProg(i);
+				achievement.maxProg = this.getMaxProg(i);
+				achievement.imageURL = this.getImageURL(i);
+				achievements.put(this.getTitle(i), achievement);
+			}
+			return achievements;
+		}
+	}
+
+	private final String[] dictionary;
+	private final int missingImageId;
+	private final int[] title, category, description, imageURL;
+	private final int[] currentProg, maxProg;
+	private Map<String, int[]> categories;		//Category name to its [from, to) rows, in category order
+
+	private AchievementCatalog(String[] dictionary, int size) {
+		this.dictionary = dictionary;
+		this.missingImageId = Arrays.asList(dictionary).indexOf(AchieveStorage.MISSING_IMAGE_TEXT);
+		this.title = new int[size];
+		this.category = new int[size];
+		this.description = new int[size];
+		this.imageURL = new int[size];
+		this.currentProg = new int[size];
+		this.maxProg = new int[size];
+	}
+
+	private String string(int id) {
+		return (id < 0) ? null : this.dictionary[id];
+	}
+
+	/**Get number of achievements*/
+	public int size() {return this.title.length;}
+
+	/**Get names of every category, in order*/
+	public List<String> getCategories() {return new ArrayList<String>(this.categories.keySet());}
+
+	/**
+	 * @return
+	 * 	The achievements of $category (empty if there are none)
+	 */
+	public Slice getCategory(String category) {
+		int[] range = this.categories.get(category);
+		return (range == null) ? new Slice(0, 0) : new Slice(range[0], range[1]);
+	}
+
+	/**
+	 * Sums the progress of every category
+	 * @return
+	 * 	Map of the category names to their progress totals, in category order
+	 */
+	public Map<String, CategoryProgress> getProgress() {
+		Map<String, CategoryProgress> totals = new LinkedHashMap<String, CategoryProgress>();
+		for(Map.Entry<String, int[]> range : this.categories.entrySet()) {
+			totals.put(range.getKey(), new Slice(range.getValue()[0], range.getValue()[1]).getProgress());
+		}
+		return totals;
+	}
+
+	//Loading ----------------------------------------------------------------
+
+	/**
+	 * Loads every achievement of $storage into a catalog.
+	 * DynamoDB is read in a single paged scan straight into the columns; other storage is read one category at a time.
+	 */
+	public static AchievementCatalog load(AchieveStorage storage) {
+		Builder builder = new Builder();
+		DynamoStorage dynamo = storage.unwrap(DynamoStorage.class);
+
+		if(dynamo != null) {
+			for(Map<String, AttributeValue> item : dynamo.scanAchievements("title, category, description, currentProg, maxProg, imageURL", null, null)) {
+				AttributeValue description = item.get("description"), imageURL = item.get("imageURL");
+				builder.add(item.get("title").getS(), item.get("category").getS(), (description == null) ? null : description.getS(),
+						Integer.parseInt(item.get("currentProg").getN()), Integer.parseInt(item.get("maxProg").getN()), (imageURL == null) ? null : imageURL.getS());
+			}
+		} else {
+			for(String category : storage.getCategories().keySet()) {
+				for(Map.Entry<String, Achievement> achievement : storage.getAchievements(category).entrySet()) {
+					Achievement value = achievement.getValue();
+					builder.add(achievement.getKey(), category, value.description, value.currentProg, value.maxProg, value.imageURL);
+				}
+			}
+		}
+
+		return builder.build();
+	}
+}
@@ -0,0 +1,386 @@
+/**
+ * Streams the achievement catalog out of DynamoDB into a JSON Lines file (the same format AchievementImporter reads).
+ *
+ * The table is read one page at a time, either as a scan (optionally split into parallel segments) or, for a single category, as a query
+ * on the category index. Each segment only ever holds the page it is writing. Pages are optionally gzipped, each as its own gzip member
+ * (concatenated members are still a valid gzip file).
+ *
+ * After every page the output is synced and a checkpoint is saved beside it holding the output length and the LastEvaluatedKey of every
+ * segment. An interrupted export can then be resumed: the output is cut back to the checkpointed length and every segment continues
+ * from its key, so no achievement is written twice or skipped. The checkpoint is removed once the export finishes.
+ *
+ * Usage: AchievementExporter <file> [--gzip] [--category <name>] [--segments <n, 0 picks from the table size>] [--resume]
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+public class AchievementExporter {
+
+	/**
+	 * Counts of what an export wrote
+	 */
+	public static class Stats {
+		public long exported = 0;
+		public long pages = 0;
+		public long bytes = 0;
+		public long millis = 0;
+		public boolean complete = false;
+
+		@Override
+		public String toString() {
+			double itemsPerSecond = (this.millis == 0) ? this.exported : this.exported * 1000.0 / this.millis;
+			return this.exported + " achievements (" + this.pages + " pages, " + this.bytes + " bytes) in " + this.millis + " ms ("
+					+ Math.round(itemsPerSecond) + " achievements/s)" + (this.complete ? "" : ", incomplete (resume from the checkpoint)");
+		}
+	}
+
+	/**
+	 * Where an export has got to: the options it was started with, how much of the output is complete, and where each segment continues from
+	 */
+	private static class Checkpoint {
+		private boolean gzip = false;
+		private String category = null;
+		private long length = 0;
+		private List<Map<String, String>> keys = new ArrayList<Map<String, String>>();	//Null once a segment is done, empty before it has started
+	}
+
+	private static final String PROJECTION = "title, category, description, maxProg, currentProg, imageURL";
+	private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+	private final DynamoStorage storage;
+	private final JsonFactory jsonFactory;
+
+	private Checkpoint checkpoint;
+	private File checkpointFile;
+	private FileChannel output;
+	private Stats stats;
+
+	/**
+	 * @param storage
+	 * 	The (connected) DynamoDB storage to export
+	 */
+	public AchievementExporter(DynamoStorage storage) {
+		this.storage = storage;
+		this.jsonFactory = new JsonFactory();
+	}
+
+	/**
+	 * Exports the achievements into $file
+	 * @param gzip
+	 * 	True to gzip the output
+	 * @param category
+	 * 	Only export this category (null for every category)
+	 * @param segments
+	 * 	Number of scan segments to read in parallel (0 picks from the table size, ignored for a single category)
+	 * @param resume
+	 * 	True to continue from the checkpoint of an interrupted export into $file (its options replace $gzip, $category and $segments)
+	 * @return
+	 * 	Counts of what was written
+	 */
+	public Stats export(File file, boolean gzip, String category, int segments, boolean resume) throws IOException, InterruptedException {
+		this.stats = new Stats();
+		this.checkpointFile = new File(file.getPath() + CHECKPOINT_SUFFIX);
+
+		if(resume && this.checkpointFile.exists()) {
+			this.checkpoint = this.readCheckpoint();
+			System.err.println("[SUCCESS] Resuming export of " + file.getName() + " from byte " + this.checkpoint.length + ".");
+		} else {
+			if(resume) System.err.println("[WARNING] No checkpoint to resume from, starting a new export.");
+			this.checkpoint = new Checkpoint();
+			this.checkpoint.gzip = gzip;
+			this.checkpoint.category = category;
+			int totalSegments = (category != null) ? 1 : (segments > 0) ? segments : this.storage.getScanSegments();
+			for(int i = 0; i < totalSegments; i++) {
+				this.checkpoint.keys.add(new TreeMap<String, String>());
+			}
+		}
+
+		long start = System.nanoTime();
+		try (RandomAccessFile outputFile = new RandomAccessFile(file, "rw")) {
+			this.output = outputFile.getChannel();
+			this.output.truncate(this.checkpoint.length);		//Drops anything written after the checkpoint
+			this.output.position(this.checkpoint.length);
+			this.writeCheckpoint();
+
+			int totalSegments = this.checkpoint.keys.size();
+			ExecutorService pool = Executors.newFixedThreadPool(totalSegments, runnable -> {
+				Thread thread = new Thread(runnable, "export-segment");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				List<Future<?>> running = new ArrayList<Future<?>>();
+				for(int i = 0; i < totalSegments; i++) {
+					final int segment = i;
+					if(this.checkpoint.keys.get(segment) != null) running.add(pool.submit(() -> this.exportSegment(segment, totalSegments)));
+				}
+
+				boolean failed = false;
+				for(Future<?> segment : running) {
+					try {
+						segment.get();
+					} catch (Exception e) {
+						failed = true;
+						System.err.println("[ERROR] Export segment failed, the checkpoint has been kept.");
+						System.err.println(e.getMessage());
+					}
+				}
+				this.stats.complete = !failed;
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+
+		if(this.stats.complete) Files.deleteIfExists(this.checkpointFile.toPath());
+		this.stats.millis = (System.nanoTime() - start) / 1000000;
+		return this.stats;
+	}
+
+	/**
+	 * Pages through one segment from its checkpointed key, appending each page to the output
+	 */
+	private void exportSegment(int segment, int totalSegments) {
+		ItemPager pager = (this.checkpoint.category != null)
+				? this.storage.queryCategory(this.checkpoint.category, PROJECTION)
+				: this.storage.scanAchievementSegment(PROJECTION, segment, totalSegments);
+		pager.withStartKey(toKey(this.checkpoint.keys.get(segment)));
+
+		pager.forEachPage((items, lastEvaluatedKey) -> {
+			try {
+				this.appendPage(segment, this.encodePage(items), items.size(), lastEvaluatedKey);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return true;
+		});
+	}
+
+	/**
+	 * Encodes $items as JSON Lines (gzipped into a single member if the export is gzipped)
+	 */
+	private byte[] encodePage(List<Map<String, AttributeValue>> items) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+		OutputStream out = this.checkpoint.gzip ? new GZIPOutputStream(bytes, 64 * 1024) : bytes;
+		try (JsonGenerator generator = this.jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+			generator.setRootValueSeparator(null);		//Lines are ended by hand, so no space is put before each object
+			for(Map<String, AttributeValue> item : items) {
+				generator.writeStartObject();
+				for(Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+					AttributeValue value = attribute.getValue();
+					if(value.getS() != null) {
+						generator.writeStringField(attribute.getKey(), value.getS());
+					} else if(value.getN() != null) {
+						generator.writeFieldName(attribute.getKey());
+						generator.writeNumber(value.getN());
+					}
+				}
+				generator.writeEndObject();
+				generator.writeRaw('\n');
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Appends an encoded page to the output and checkpoints that $segment continues from $lastEvaluatedKey
+	 */
+	private synchronized void appendPage(int segment, byte[] page, int items, Map<String, AttributeValue> lastEvaluatedKey) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(page);
+		while(buffer.hasRemaining()) {
+			this.output.write(buffer);
+		}
+		this.output.force(false);		//The page must be on disk before the checkpoint says it is
+
+		this.checkpoint.length += page.length;
+		this.checkpoint.keys.set(segment, fromKey(lastEvaluatedKey));
+		this.writeCheckpoint();
+
+		this.stats.exported += items;
+		this.stats.pages++;
+		this.stats.bytes += page.length;
+	}
+
+	//Checkpoint -------------------------------------------------------------
+
+	/**
+	 * Saves the checkpoint, replacing the earlier one in a single rename once the new one is on disk
+	 */
+	private void writeCheckpoint() throws IOException {
+		File temp = new File(this.checkpointFile.getPath() + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(temp); JsonGenerator generator = this.jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+			generator.writeStartObject();
+			generator.writeBooleanField("gzip", this.checkpoint.gzip);
+			if(this.checkpoint.category != null) generator.writeStringField("category", this.checkpoint.category);
+			generator.writeNumberField("length", this.checkpoint.length);
+			generator.writeArrayFieldStart("segments");
+			for(Map<String, String> key : this.checkpoint.keys) {
+				if(key == null) {
+					generator.writeNull();
+					continue;
+				}
+				generator.writeStartObject();
+				for(Map.Entry<String, String> attribute : key.entrySet()) {
+					generator.writeStringField(attribute.getKey(), attribute.getValue());
+				}
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+			generator.flush();
+			out.getFD().sync();		//Otherwise a crash after the rename could leave an empty or torn checkpoint
+		}
+		Files.move(temp.toPath(), this.checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private Checkpoint readCheckpoint() throws IOException {
+		Checkpoint checkpoint = new Checkpoint();
+		try (JsonParser parser = this.jsonFactory.createParser(new FileInputStream(this.checkpointFile))) {
+			if(parser.nextToken() != JsonToken.START_OBJECT) throw new IOException("Checkpoint is not a JSON object");
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				switch (field) {
+					case "gzip":
+						checkpoint.gzip = parser.getBooleanValue();
+						break;
+					case "category":
+						checkpoint.category = parser.getText();
+						break;
+					case "length":
+						checkpoint.length = parser.getLongValue();
+						break;
+					case "segments":
+						while(parser.nextToken() != JsonToken.END_ARRAY) {
+							if(parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+								checkpoint.keys.add(null);
+								continue;
+							}
+							Map<String, String> key = new TreeMap<String, String>();
+							while(parser.nextToken() == JsonToken.FIELD_NAME) {
+								String attribute = parser.getCurrentName();
+								parser.nextToken();
+								key.put(attribute, parser.getText());
+							}
+							checkpoint.keys.add(key);
+						}
+						break;
+					default:
+						if(value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) parser.skipChildren();
+				}
+			}
+		}
+		if(checkpoint.keys.isEmpty()) throw new IOException("Checkpoint has no segments");
+		return checkpoint;
+	}
+
+	/**
+	 * @return
+	 * 	The string key attributes of $key (the key attributes of the table and its indexes are all strings), or null if $key is null
+	 */
+	private static Map<String, String> fromKey(Map<String, AttributeValue> key) {
+		if(key == null) return null;
+		Map<String, String> attributes = new TreeMap<String, String>();
+		for(Map.Entry<String, AttributeValue> attribute : key.entrySet()) {
+			attributes.put(attribute.getKey(), attribute.getValue().getS());
+		}
+		return attributes;
+	}
+
+	private static Map<String, AttributeValue> toKey(Map<String, String> attributes) {
+		Map<String, AttributeValue> key = new TreeMap<String, AttributeValue>();
+		for(Map.Entry<String, String> attribute : attributes.entrySet()) {
+			key.put(attribute.getKey(), new AttributeValue().withS(attribute.getValue()));
+		}
+		return key;
+	}
+
+	//Command line -----------------------------------------------------------
+
+	/**
+	 * Exports the achievements of the DynamoDB storage from the saved settings into the file $args[0]
+	 * @param args
+	 * 	File to export into, then any of --gzip, --category <name>, --segments <n> (picked from the table size by default) and --resume
+	 */
+	public static void main(String[] args) {
+		if(args.length < 1) {
+			System.err.println("Usage: AchievementExporter <file> [--gzip] [--category <name>] [--segments <n>] [--resume]");
+			return;
+		}
+		File file = new File(args[0]);
+		boolean gzip = false, resume = false;
+		String category = null;
+		int segments = 0;
+		for(int i = 1; i < args.length; i++) {
+			switch (args[i]) {
+				case "--gzip":
+					gzip = true;
+					break;
+				case "--resume":
+					resume = true;
+					break;
+				case "--category":
+					if(i + 1 < args.length) category = args[++i];
+					break;
+				case "--segments":
+					if(i + 1 < args.length) segments = Integer.parseInt(args[++i]);
+					break;
+				default:
+					System.err.println("[WARNING] Ignoring unknown option: " + args[i]);
+			}
+		}
+
+		AchieveSettings settings = new AchieveSettings(Achievements.DATABASE_CONFIG_ADDRESS, Achievements.ACCOUNT_CONFIG_ADDRESS,
+				Achievements.MISSING_IMAGE_ADDRESS, Achievements.LOCKED_IMAGE_ADDRESS);
+		DynamoStorage storage = settings.storage.unwrap(DynamoStorage.class);
+		if(storage == null) {
+			System.err.println("[ERROR] Exporting needs DynamoDB storage.");
+			return;
+		}
+
+		storage.connect(settings);
+		try {
+			Stats stats = new AchievementExporter(storage).export(file, gzip, category, segments, resume);
+			System.err.println((stats.complete ? "[SUCCESS] " : "[WARNING] ") + "Exported " + file.getName() + ": " + stats);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not export " + file.getName());
+			System.err.println(e.getMessage());
+		} finally {
+			storage.close();
+		}
+	}
+}
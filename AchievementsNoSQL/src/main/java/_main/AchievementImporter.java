@@ -0,0 +1,437 @@
+/**
+ * Streams achievements from a JSON Lines or CSV file into the storage in use.
+ *
+ * Rows are read one at a time and never held, so memory stays flat however long the file is (only an 8 byte fingerprint of each
+ * key read so far is kept, to drop duplicate keys). Every row is validated, and the first row of each key wins.
+ * With DynamoDB the rows are pipelined through BatchWriteItem (see BatchWriter), which blocks reading while every batch is in flight,
+ * and the category summaries are reconciled once at the end. BatchWriteItem cannot check that an achievement is new, so each group of
+ * rows is first looked up with a single BatchGetItem and only the achievements not stored yet are written. Existing achievements
+ * (and their progress) are never overwritten, only counted as duplicates, like every other storage does. Any other storage has each
+ * row created one at a time.
+ *
+ * JSON Lines: one object per line with the fields title, category, description, maxProg, currentProg and imageURL.
+ * CSV: a header row naming the same columns (in any order), then one row per achievement. Fields may be quoted ("" is a quote).
+ * Only title, category and maxProg are required.
+ *
+ * Usage: AchievementImporter <file> [json|csv]		(the format defaults to the file extension)
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import _main.AchieveStorage.CreateResult;
+
+public class AchievementImporter {
+
+	/**
+	 * Counts of what happened to the rows of an import
+	 */
+	public static class Stats {
+		public long read = 0;
+		public long imported = 0;
+		public long invalid = 0;
+		public long duplicates = 0;
+		public long failed = 0;
+		public long millis = 0;
+
+		@Override
+		public String toString() {
+			double rowsPerSecond = (this.millis == 0) ? this.read : this.read * 1000.0 / this.millis;
+			return this.read + " rows in " + this.millis + " ms (" + Math.round(rowsPerSecond) + " rows/s): " + this.imported + " imported, "
+					+ this.invalid + " invalid, " + this.duplicates + " duplicates, " + this.failed + " failed";
+		}
+	}
+
+	/**
+	 * A single row, before it is validated
+	 */
+	private static class Row {
+		private String title = null;
+		private String category = null;
+		private String description = null;
+		private String maxProg = null;
+		private String currentProg = null;
+		private String imageURL = null;
+
+		private void set(String field, String value) {
+			switch (field) {
+				case "title":
+					this.title = value;
+					break;
+				case "category":
+					this.category = value;
+					break;
+				case "description":
+					this.description = value;
+					break;
+				case "maxProg":
+					this.maxProg = value;
+					break;
+				case "currentProg":
+					this.currentProg = value;
+					break;
+				case "imageURL":
+					this.imageURL = value;
+					break;
+				default:
+					//Unknown fields are ignored
+			}
+		}
+	}
+
+	/**
+	 * Set of 64-bit key fingerprints in a single open-addressed array (0 marks an empty slot)
+	 */
+	private static class FingerprintSet {
+		private long[] slots = new long[1 << 16];
+		private int size = 0;
+
+		/**
+		 * @return
+		 * 	True iff $fingerprint was not in the set yet
+		 */
+		private boolean add(long fingerprint) {
+			if(fingerprint == 0) fingerprint = 1;
+			if(2 * (this.size + 1) > this.slots.length) this.grow();
+
+			int mask = this.slots.length - 1;
+			for(int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+				if(this.slots[i] == fingerprint) return false;
+				if(this.slots[i] == 0) {
+					this.slots[i] = fingerprint;
+					this.size++;
+					return true;
+				}
+			}
+		}
+
+		private void grow() {
+			long[] old = this.slots;
+			this.slots = new long[old.length * 2];
+			this.size = 0;
+			for(long fingerprint : old) {
+				if(fingerprint != 0) this.add(fingerprint);
+			}
+		}
+	}
+
+	private static final int MAX_REPORTED_ERRORS = 20;		//Invalid rows reported individually before only being counted
+	private static final int MAX_HASH_KEY_BYTES = 2048;		//DynamoDB limit on the size of a partition key value
+	private static final int MAX_RANGE_KEY_BYTES = 1024;	//DynamoDB limit on the size of a sort key value
+	private static final List<String> FIELDS = Arrays.asList("title", "category", "description", "maxProg", "currentProg", "imageURL");
+
+	private final AchieveStorage storage;
+	private final JsonFactory jsonFactory;
+
+	private Stats stats;
+	private FingerprintSet keys;
+	private DynamoStorage dynamo;
+	private BatchWriter writer;
+	private Map<List<String>, Map<String, AttributeValue>> unchecked;		//Items not yet looked up, keyed by [title, category]
+
+	/**
+	 * @param storage
+	 * 	The storage to import into (connected)
+	 */
+	public AchievementImporter(AchieveStorage storage) {
+		this.storage = storage;
+		this.jsonFactory = new JsonFactory();
+	}
+
+	/**
+	 * Imports every row of $file
+	 * @param csv
+	 * 	True iff $file is CSV (otherwise JSON Lines)
+	 * @return
+	 * 	Counts of what happened to the rows
+	 */
+	public Stats importFile(File file, boolean csv) throws IOException, InterruptedException {
+		this.stats = new Stats();
+		this.keys = new FingerprintSet();
+
+		/*
+		 * Write straight to DynamoDB in batches when it is the storage underneath (the cache is emptied once the import is done)
+		 */
+		this.dynamo = this.storage.unwrap(DynamoStorage.class);
+		this.writer = (this.dynamo == null) ? null : this.dynamo.createAchievementWriter();
+		this.unchecked = new LinkedHashMap<List<String>, Map<String, AttributeValue>>();
+
+		long start = System.nanoTime();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+			if(csv) this.readCsv(reader);
+			else this.readJsonLines(reader);
+		} finally {
+			if(this.writer != null) {
+				this.writeUnchecked();
+				BatchWriter.Result result = this.writer.finish();
+				this.stats.imported = result.succeeded;
+				this.stats.failed += result.failed;
+				this.dynamo.reconcileCategories();
+			}
+			CachingStorage cache = this.storage.unwrap(CachingStorage.class);
+			if(cache != null) cache.invalidateAll();
+			this.stats.millis = (System.nanoTime() - start) / 1000000;
+		}
+
+		return this.stats;
+	}
+
+	//Parsing ----------------------------------------------------------------
+
+	/**
+	 * Reads one JSON object per line (blank lines are skipped)
+	 */
+	private void readJsonLines(BufferedReader reader) throws IOException, InterruptedException {
+		long lineNumber = 0;
+		for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+			lineNumber++;
+			if(line.trim().isEmpty()) continue;
+			this.stats.read++;
+
+			Row row = new Row();
+			try (JsonParser parser = this.jsonFactory.createParser(line)) {
+				if(parser.nextToken() != JsonToken.START_OBJECT) throw new IOException("not a JSON object");
+				while(parser.nextToken() == JsonToken.FIELD_NAME) {
+					String field = parser.getCurrentName();
+					JsonToken value = parser.nextToken();
+					if(value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+						parser.skipChildren();
+					} else if(value != JsonToken.VALUE_NULL) {
+						row.set(field, parser.getText());
+					}
+				}
+			} catch (IOException e) {
+				this.reject(lineNumber, "malformed JSON (" + e.getMessage() + ")");
+				continue;
+			}
+			this.accept(lineNumber, row);
+		}
+	}
+
+	/**
+	 * Reads a header row and then one achievement per row (quoted fields may span lines)
+	 */
+	private void readCsv(BufferedReader reader) throws IOException, InterruptedException {
+		long[] lineNumber = {0};
+		List<String> header = readCsvRecord(reader, lineNumber);
+		if(header == null) return;
+		for(String column : header) {
+			if(!FIELDS.contains(column.trim())) System.err.println("[WARNING] Ignoring unknown column: " + column);
+		}
+
+		for(List<String> fields = readCsvRecord(reader, lineNumber); fields != null; fields = readCsvRecord(reader, lineNumber)) {
+			if(fields.size() == 1 && fields.get(0).isEmpty()) continue;		//Blank line
+			this.stats.read++;
+
+			if(fields.size() != header.size()) {
+				this.reject(lineNumber[0], "expected " + header.size() + " fields but found " + fields.size());
+				continue;
+			}
+			Row row = new Row();
+			for(int i = 0; i < fields.size(); i++) {
+				if(!fields.get(i).isEmpty()) row.set(header.get(i).trim(), fields.get(i));
+			}
+			this.accept(lineNumber[0], row);
+		}
+	}
+
+	/**
+	 * Reads the next CSV record from $reader, counting the lines read in $lineNumber[0]
+	 * @return
+	 * 	The fields of the record, or null at the end of the file
+	 */
+	static List<String> readCsvRecord(BufferedReader reader, long[] lineNumber) throws IOException {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		boolean any = false;
+
+		for(int c = reader.read(); c != -1; c = reader.read()) {
+			any = true;
+			if(quoted) {
+				if(c == '"') {
+					reader.mark(1);
+					if(reader.read() == '"') {
+						field.append('"');
+					} else {
+						reader.reset();
+						quoted = false;
+					}
+				} else {
+					if(c == '\n') lineNumber[0]++;
+					field.append((char) c);
+				}
+			} else if(c == '"') {
+				quoted = true;
+			} else if(c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if(c == '\n') {
+				lineNumber[0]++;
+				break;
+			} else if(c != '\r') {
+				field.append((char) c);
+			}
+		}
+
+		if(!any) return null;
+		fields.add(field.toString());
+		return fields;
+	}
+
+	//Rows -------------------------------------------------------------------
+
+	/**
+	 * Validates $row and imports it unless its key was already read
+	 */
+	private void accept(long lineNumber, Row row) throws InterruptedException {
+		if(row.title == null || row.title.isEmpty() || row.category == null || row.category.isEmpty()) {
+			this.reject(lineNumber, "title and category are required");
+			return;
+		}
+		if(row.title.getBytes(StandardCharsets.UTF_8).length > MAX_HASH_KEY_BYTES || row.category.getBytes(StandardCharsets.UTF_8).length > MAX_RANGE_KEY_BYTES) {
+			this.reject(lineNumber, "title or category is too long");
+			return;
+		}
+
+		if(row.maxProg == null) {
+			this.reject(lineNumber, "maxProg is required");
+			return;
+		}
+		int maxProg, currentProg;
+		try {
+			maxProg = Integer.parseInt(row.maxProg.trim());
+			currentProg = (row.currentProg == null) ? 0 : Integer.parseInt(row.currentProg.trim());
+		} catch (NumberFormatException e) {
+			this.reject(lineNumber, "maxProg and currentProg must be whole numbers");
+			return;
+		}
+		if(maxProg <= 0 || currentProg < 0 || currentProg > maxProg) {
+			this.reject(lineNumber, "progress must satisfy 0 <= currentProg <= maxProg and maxProg > 0");
+			return;
+		}
+
+		if(!this.keys.add(fingerprint(row.title, row.category))) {
+			this.stats.duplicates++;
+			return;
+		}
+
+		String imageURL = (row.imageURL == null || row.imageURL.isEmpty()) ? AchieveStorage.MISSING_IMAGE_TEXT : row.imageURL;
+		if(this.writer != null) {
+			this.unchecked.put(Arrays.asList(row.title, row.category), DynamoStorage.achievementItem(row.title, row.category, row.description, maxProg, currentProg, imageURL));
+			if(this.unchecked.size() >= DynamoStorage.MAX_BATCH_GET_SIZE) this.writeUnchecked();
+			return;
+		}
+
+		CreateResult result = this.storage.createAchievement(row.title, row.category, row.description, maxProg, imageURL);
+		if(result == CreateResult.CREATED) {
+			if(currentProg > 0) this.storage.incrementProgress(row.title, row.category, currentProg);
+			this.stats.imported++;
+		} else if(result == CreateResult.ALREADY_EXISTS) {
+			this.stats.duplicates++;
+		} else {
+			this.stats.failed++;
+		}
+	}
+
+	/**
+	 * Looks up the achievements waiting to be checked and writes the ones that are not stored yet
+	 */
+	private void writeUnchecked() throws InterruptedException {
+		if(this.unchecked.isEmpty()) return;
+		try {
+			Set<List<String>> existing = this.dynamo.existingAchievements(this.unchecked.keySet());
+			for(Map.Entry<List<String>, Map<String, AttributeValue>> item : this.unchecked.entrySet()) {
+				if(existing.contains(item.getKey())) this.stats.duplicates++;
+				else this.writer.add(new WriteRequest().withPutRequest(new PutRequest().withItem(item.getValue())));
+			}
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			this.stats.failed += this.unchecked.size();
+			System.err.println("[ERROR] Could not check whether " + this.unchecked.size() + " achievements already exist, skipping them.");
+			System.err.println(e.getMessage());
+		}
+		this.unchecked.clear();
+	}
+
+	private void reject(long lineNumber, String reason) {
+		this.stats.invalid++;
+		if(this.stats.invalid <= MAX_REPORTED_ERRORS) System.err.println("[WARNING] Skipping line " + lineNumber + ": " + reason);
+		if(this.stats.invalid == MAX_REPORTED_ERRORS + 1) System.err.println("[WARNING] Further invalid rows are only counted.");
+	}
+
+	/**
+	 * 64-bit FNV-1a of "$title\0$category", finished with the MurmurHash3 mix so that every bit depends on every character
+	 */
+	private static long fingerprint(String title, String category) {
+		long hash = 0xcbf29ce484222325L;
+		String key = title + '\0' + category;
+		for(int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	//Command line -----------------------------------------------------------
+
+	/**
+	 * Imports the file $args[0] into the storage chosen by the saved settings
+	 * @param args
+	 * 	File to import, then optionally its format (json or csv)
+	 */
+	public static void main(String[] args) {
+		if(args.length < 1) {
+			System.err.println("Usage: AchievementImporter <file> [json|csv]");
+			return;
+		}
+		File file = new File(args[0]);
+		boolean csv = (args.length > 1) ? args[1].equalsIgnoreCase("csv") : file.getName().toLowerCase().endsWith(".csv");
+
+		AchieveSettings settings = new AchieveSettings(Achievements.DATABASE_CONFIG_ADDRESS, Achievements.ACCOUNT_CONFIG_ADDRESS,
+				Achievements.MISSING_IMAGE_ADDRESS, Achievements.LOCKED_IMAGE_ADDRESS);
+		settings.storage.connect(settings);
+		try {
+			Stats stats = new AchievementImporter(settings.storage).importFile(file, csv);
+			System.err.println(((stats.invalid + stats.failed == 0) ? "[SUCCESS] " : "[WARNING] ") + "Imported " + file.getName() + ": " + stats);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not import " + file.getName());
+			System.err.println(e.getMessage());
+		} finally {
+			settings.storage.close();
+		}
+	}
+}
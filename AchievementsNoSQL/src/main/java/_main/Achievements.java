@@ -13,6 +13,8 @@
 
 package _main;
 
+import javax.swing.SwingUtilities;
+
 import mainmenu.MainMenuController;
 import mainmenu.MainMenuController1;
 import mainmenu.MainMenuView;
@@ -25,10 +27,11 @@ import mainmenu.MainMenuView1;
  */
 public final class Achievements {
 
-	private static final String DATABASE_CONFIG_ADDRESS = "config/databaseConfig.properties";
-	private static final String ACCOUNT_CONFIG_ADDRESS = "config/accountConfig.properties";
-	private static final String LOCKED_IMAGE_ADDRESS = "data/locked.png";
-	private static final String MISSING_IMAGE_ADDRESS = "data/missing.png";
+	//Shared with the command-line tools, so they load the same settings
+	static final String DATABASE_CONFIG_ADDRESS = "config/databaseConfig.properties";
+	static final String ACCOUNT_CONFIG_ADDRESS = "config/accountConfig.properties";
+	static final String LOCKED_IMAGE_ADDRESS = "data/locked.png";
+	static final String MISSING_IMAGE_ADDRESS = "data/missing.png";
 	
     /**
      * Private constructor so this utility class cannot be instantiated.
@@ -50,14 +53,9 @@ public final class Achievements {
     	AchieveSettings settings = new AchieveSettings(DATABASE_CONFIG_ADDRESS, ACCOUNT_CONFIG_ADDRESS, MISSING_IMAGE_ADDRESS, LOCKED_IMAGE_ADDRESS);
     	
     	/*
-    	 * Attempt to connect to any saved settings
+    	 * Close whichever storage is in use when the program exits, so queued writes are not lost
     	 */
-    	if(!settings.getUseLocal()) {
-    		settings.storage.connectDatabase(settings);
-        	settings.storage.connectKMS(settings);
-        	settings.storage.connectDrive(settings);
-        	if(settings.getRememberLogin()) settings.storage.login(settings.getUsername(), settings.getPassword(), settings);	//Login if remember login was chosen
-    	}
+    	Runtime.getRuntime().addShutdownHook(new Thread(() -> settings.storage.close(), "storage-shutdown"));
     	
         /*
          * Create instances of the model, view, and controller objects;
@@ -68,5 +66,27 @@ public final class Achievements {
         MainMenuController controller = new MainMenuController1(view);
         
         view.registerObserver(controller);
+        view.updateConnecting(true);
+        
+    	/*
+    	 * Attempt to connect to any saved settings (and login if remember login was chosen) in the background,
+    	 * showing each service in the main menu as it connects
+    	 */
+        new Bootstrap(settings, new Bootstrap.Listener() {
+        	@Override
+        	public void serviceConnected(String service, boolean available) {
+        		SwingUtilities.invokeLater(() -> view.updateServiceAvailable(service, available));
+        	}
+        	
+        	@Override
+        	public void storageReady(boolean loggedIn) {
+        		SwingUtilities.invokeLater(() -> view.updateConnecting(false));
+        	}
+        	
+        	@Override
+        	public void sessionChecked(boolean valid) {
+        		if(!valid) SwingUtilities.invokeLater(() -> view.updateConnecting(false));	//Shows the buttons as logged out
+        	}
+        }).start();
     }
 }
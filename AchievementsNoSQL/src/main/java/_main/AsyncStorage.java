@@ -0,0 +1,197 @@
+/**
+ * Non-blocking versions of every storage operation.
+ *
+ * Each operation runs on a bounded pool of I/O threads and returns a CompletableFuture, so windows and batch jobs can start many requests
+ * at once and combine their results without waiting on each one. Operations always run against the storage currently in use by the
+ * settings, so they follow the storage when it is switched. Once the pool and its queue are full, new operations fail straight away
+ * (their futures complete with a RejectedExecutionException) rather than running on the calling thread, which may be the event thread.
+ *
+ * Windows use onEventThread to carry on with a result once it arrives, so the Swing event thread never waits on the storage.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.swing.SwingUtilities;
+
+import _main.AchieveStorage.Achievement;
+import _main.AchieveStorage.AchievementPair;
+import _main.AchieveStorage.CreateResult;
+import _main.AchieveStorage.Progress;
+import _main.AchieveStorage.SessionResult;
+
+public class AsyncStorage {
+
+	private static final int QUEUED_PER_THREAD = 64;	//Operations that can wait for each thread before new ones are rejected
+
+	private final AchieveSettings settings;
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * @param settings
+	 * 	Settings holding the storage to use
+	 * @param threads
+	 * 	Most operations running at the same time
+	 */
+	public AsyncStorage(AchieveSettings settings, int threads) {
+		this.settings = settings;
+
+		final AtomicInteger count = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(threads * QUEUED_PER_THREAD),
+				runnable -> {
+					Thread thread = new Thread(runnable, "storage-io-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				},
+				new ThreadPoolExecutor.AbortPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Runs $action with the result of $operation on the Swing event thread once $operation completes.
+	 * A failed operation is reported and $action is not run.
+	 */
+	public static <T> void onEventThread(CompletableFuture<T> operation, Consumer<T> action) {
+		operation.whenComplete((result, e) -> {
+			if(e != null) {
+				System.err.println("[ERROR] Storage operation failed.");
+				System.err.println(e.getMessage());
+				return;
+			}
+			SwingUtilities.invokeLater(() -> action.accept(result));
+		});
+	}
+
+	/**
+	 * Runs $operation on the pool
+	 * @return
+	 * 	Its result, or a failed future if the pool is full (or closed)
+	 */
+	private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+		try {
+			return CompletableFuture.supplyAsync(operation, this.executor);
+		} catch (RejectedExecutionException e) {
+			CompletableFuture<T> rejected = new CompletableFuture<T>();
+			rejected.completeExceptionally(e);
+			return rejected;
+		}
+	}
+	
+	/**
+	 * Runs $operation on the pool (see supply)
+	 */
+	private CompletableFuture<Void> run(Runnable operation) {
+		return this.supply(() -> {
+			operation.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Stops taking new operations (operations already started still finish)
+	 */
+	public void close() {
+		this.executor.shutdown();
+	}
+
+	//Connection -------------------------------------------------------------
+
+	public CompletableFuture<Void> connect() {
+		return this.run(() -> this.settings.storage.connect(this.settings));
+	}
+
+	/**
+	 * Closes $storage (which may no longer be the storage in use), writing anything it still has queued
+	 */
+	public CompletableFuture<Void> closeStorage(AchieveStorage storage) {
+		return this.run(() -> storage.close());
+	}
+
+	public CompletableFuture<Void> createDatabase() {
+		return this.run(() -> this.settings.storage.createDatabase());
+	}
+
+	public CompletableFuture<Void> createKey() {
+		return this.run(() -> this.settings.storage.createKey());
+	}
+
+	//Accounts ---------------------------------------------------------------
+
+	public CompletableFuture<CreateResult> createAccount(String username, String email, String password) {
+		return this.supply(() -> this.settings.storage.createAccount(username, email, password, this.settings));
+	}
+
+	public CompletableFuture<Boolean> login(String username, String password) {
+		return this.supply(() -> this.settings.storage.login(username, password, this.settings));
+	}
+
+	public CompletableFuture<SessionResult> resumeSession(String username, String sessionToken) {
+		return this.supply(() -> this.settings.storage.resumeSession(username, sessionToken, this.settings));
+	}
+
+	//Categories -------------------------------------------------------------
+
+	public CompletableFuture<Map<String, Double>> getCategories() {
+		return this.supply(() -> this.settings.storage.getCategories());
+	}
+
+	public CompletableFuture<BatchWriter.Result> deleteCategory(String category) {
+		return this.supply(() -> this.settings.storage.deleteCategory(category));
+	}
+
+	//Achievements -----------------------------------------------------------
+
+	public CompletableFuture<Map<String, Achievement>> getAchievements(String category) {
+		return this.supply(() -> this.settings.storage.getAchievements(category));
+	}
+
+	public CompletableFuture<Set<AchievementPair>> getNoImageAchievements() {
+		return this.supply(() -> this.settings.storage.getNoImageAchievements());
+	}
+
+	public CompletableFuture<Boolean> isUnique(String title, String category) {
+		return this.supply(() -> this.settings.storage.isUnique(title, category));
+	}
+
+	public CompletableFuture<CreateResult> createAchievement(String title, String category, String description, int maxProg, String imageURL) {
+		return this.supply(() -> this.settings.storage.createAchievement(title, category, description, maxProg, imageURL));
+	}
+
+	public CompletableFuture<Progress> incrementProgress(String title, String category, int delta) {
+		return this.supply(() -> this.settings.storage.incrementProgress(title, category, delta));
+	}
+
+	public CompletableFuture<Void> changeAchievementImage(String title, String category, String imageURL) {
+		return this.run(() -> this.settings.storage.changeAchievementImage(title, category, imageURL));
+	}
+
+	public CompletableFuture<Void> deleteAchievement(String achievement, String category) {
+		return this.run(() -> this.settings.storage.deleteAchievement(achievement, category));
+	}
+
+	//Images -----------------------------------------------------------------
+
+	public CompletableFuture<String> createImageURL(String achieveTitle, String category, File image) {
+		return this.supply(() -> this.settings.storage.createImageURL(achieveTitle, category, image));
+	}
+}
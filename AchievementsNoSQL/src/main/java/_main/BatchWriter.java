@@ -0,0 +1,179 @@
+/**
+ * Pipelines writes to a DynamoDB table through BatchWriteItem.
+ * Writes are grouped into batches of 25, several batches are kept in flight at once, and any UnprocessedItems are resubmitted with exponential backoff.
+ * Adding a write blocks while the maximum number of batches is already in flight, so producers can never run ahead of the table's write capacity.
+ * Writes are added from a single producing thread.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+public class BatchWriter {
+
+	/**
+	 * Counts of the writes that did and did not make it into the table.
+	 */
+	public static class Result {
+		public final int succeeded;
+		public final int failed;
+
+		public Result(int succeeded, int failed) {
+			this.succeeded = succeeded;
+			this.failed = failed;
+		}
+	}
+
+	public static final int MAX_BATCH_SIZE = 25;			//Most writes DynamoDB accepts in one BatchWriteItem
+	private static final int MAX_ATTEMPTS = 8;				//Attempts for each write before it counts as failed
+	private static final long BASE_BACKOFF_MILLIS = 50;		//First retry delay, doubled on every further attempt
+	private static final long MAX_BACKOFF_MILLIS = 5000;
+
+	private final AmazonDynamoDB client;
+	private final String tableName;
+	private final ExecutorService executor;
+	private final Semaphore inFlight;
+	private final int maxInFlight;
+
+	private List<WriteRequest> batch;
+	private final AtomicInteger succeeded;
+	private final AtomicInteger failed;
+
+	/**
+	 * @param client
+	 * 	DynamoDB client to issue the writes with
+	 * @param tableName
+	 * 	The table to write to
+	 * @param executor
+	 * 	Runs the batches (should have at least $maxInFlight threads for them all to run at once)
+	 * @param maxInFlight
+	 * 	Most batches that can be running at the same time
+	 */
+	public BatchWriter(AmazonDynamoDB client, String tableName, ExecutorService executor, int maxInFlight) {
+		this.client = client;
+		this.tableName = tableName;
+		this.executor = executor;
+		this.maxInFlight = Math.max(1, maxInFlight);
+		this.inFlight = new Semaphore(this.maxInFlight);
+
+		this.batch = new ArrayList<WriteRequest>(MAX_BATCH_SIZE);
+		this.succeeded = new AtomicInteger();
+		this.failed = new AtomicInteger();
+	}
+
+	/**
+	 * Queues a write, sending the current batch once it is full.
+	 * Blocks while the maximum number of batches is already in flight.
+	 * @param request
+	 * 	Put or delete request for the table
+	 */
+	public void add(WriteRequest request) throws InterruptedException {
+		this.batch.add(request);
+		if(this.batch.size() >= MAX_BATCH_SIZE) this.submitBatch();
+	}
+
+	/**
+	 * Sends any partly filled batch and waits for every batch to finish
+	 * @return
+	 * 	How many writes succeeded and failed over the life of this writer
+	 */
+	public Result finish() throws InterruptedException {
+		if(!this.batch.isEmpty()) this.submitBatch();
+
+		//Once every permit can be taken back, no batches are left running
+		this.inFlight.acquire(this.maxInFlight);
+		this.inFlight.release(this.maxInFlight);
+
+		return new Result(this.succeeded.get(), this.failed.get());
+	}
+
+	private void submitBatch() throws InterruptedException {
+		final List<WriteRequest> requests = this.batch;
+		this.batch = new ArrayList<WriteRequest>(MAX_BATCH_SIZE);
+
+		this.inFlight.acquire();
+		try {
+			this.executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						writeBatch(requests);
+					} finally {
+						inFlight.release();
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			this.inFlight.release();
+			this.failed.addAndGet(requests.size());
+			System.err.println("[ERROR] Could not start batch write to " + this.tableName + ".");
+			System.err.println(e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes $requests, resubmitting unprocessed items with exponential backoff until they are all written or out of attempts
+	 */
+	private void writeBatch(List<WriteRequest> requests) {
+		List<WriteRequest> remaining = requests;
+		for(int attempt = 0; attempt < MAX_ATTEMPTS && !remaining.isEmpty(); attempt++) {
+			if(attempt > 0 && !this.backoff(attempt)) break;
+
+			try {
+				BatchWriteItemResult result = this.client.batchWriteItem(new BatchWriteItemRequest()
+						.withRequestItems(Collections.singletonMap(this.tableName, remaining)));
+
+				Map<String, List<WriteRequest>> unprocessedItems = result.getUnprocessedItems();
+				List<WriteRequest> unprocessed = (unprocessedItems == null) ? null : unprocessedItems.get(this.tableName);
+				if(unprocessed == null) unprocessed = Collections.emptyList();
+
+				this.succeeded.addAndGet(remaining.size() - unprocessed.size());
+				remaining = unprocessed;
+			} catch (Exception e) {
+				System.err.println("[WARNING] Batch write to " + this.tableName + " failed (attempt " + (attempt + 1) + " of " + MAX_ATTEMPTS + ").");
+				System.err.println(e.getMessage());
+			}
+		}
+
+		if(!remaining.isEmpty()) {
+			this.failed.addAndGet(remaining.size());
+			System.err.println("[ERROR] Could not write " + remaining.size() + " items to " + this.tableName + ".");
+		}
+	}
+
+	/**
+	 * Sleeps for a random time up to BASE_BACKOFF_MILLIS * 2^($attempt - 1), capped at MAX_BACKOFF_MILLIS
+	 * @return
+	 * 	False if the thread was interrupted while sleeping
+	 */
+	private boolean backoff(int attempt) {
+		long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/**
+ * Connects the backends at startup without holding up the first window.
+ *
+ * Each backend (DynamoDB and KMS, or the local storage) connects on its own thread at the same time as the others, and each is reported
+ * to the listener as soon as it connects, fails or runs past its timeout. A backend that times out is reported as unavailable, but its
+ * connection keeps trying in the background, and it is reported again if it connects later. Google Drive is not connected here; it is
+ * created on the first image upload (see DriveHolder).
+ *
+ * A remembered login is restored from its cached session token and account type as soon as the storage is connected, with no round trip,
+ * and the token is then checked against the storage in the background. The login is only forgotten if the storage rejects the token;
+ * if the storage cannot be reached the cached session is kept.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import _main.AchieveStorage.SessionResult;
+
+public class Bootstrap {
+
+	public static final String DYNAMODB = "DynamoDB", KMS = "KMS", STORAGE = "Storage";	//Names of the backends given to the listener
+
+	/**
+	 * Told about the backends as they connect. Called on the bootstrap threads, not the Swing event thread.
+	 */
+	public interface Listener {
+		/**
+		 * $service connected ($available), or failed or timed out (!$available)
+		 */
+		void serviceConnected(String service, boolean available);
+
+		/**
+		 * The backends the storage needs have finished connecting and the remembered login (if any) has been restored
+		 */
+		void storageReady(boolean loggedIn);
+
+		/**
+		 * The restored login has been checked against the storage, and is still logged in iff $valid
+		 */
+		void sessionChecked(boolean valid);
+	}
+
+	private final AchieveSettings settings;
+	private final Listener listener;
+	private final ExecutorService connectPool;
+	private final ScheduledExecutorService timer;
+
+	/**
+	 * @param settings
+	 * 	Settings holding the storage to connect
+	 * @param listener
+	 * 	Told about each backend as it connects
+	 */
+	public Bootstrap(AchieveSettings settings, Listener listener) {
+		this.settings = settings;
+		this.listener = listener;
+		this.connectPool = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "bootstrap-connect");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "bootstrap-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts connecting every backend and returns straight away
+	 * @return
+	 * 	Completes with whether the remembered login succeeded, once it has been checked
+	 */
+	public CompletableFuture<Boolean> start() {
+		AchieveStorage storage = this.settings.storage;
+		DynamoStorage dynamo = storage.unwrap(DynamoStorage.class);
+
+		CompletableFuture<Boolean> ready;
+		if(dynamo != null) {
+			dynamo.connectDrive(this.settings);
+			CompletableFuture<Boolean> database = this.connect(DYNAMODB, () -> dynamo.connectDatabase(this.settings), this.settings.getDatabaseConnectTimeoutMillis());
+			CompletableFuture<Boolean> kms = this.connect(KMS, () -> dynamo.connectKMS(this.settings), this.settings.getKmsConnectTimeoutMillis());
+			ready = database.thenCombine(kms, (databaseAvailable, kmsAvailable) -> databaseAvailable && kmsAvailable);
+		} else {
+			ready = this.connect(STORAGE, () -> {
+				storage.connect(this.settings);
+				return true;
+			}, this.settings.getDatabaseConnectTimeoutMillis());
+		}
+
+		/*
+		 * Restore the login if remember login was chosen
+		 */
+		CompletableFuture<Boolean> login = ready.thenApplyAsync(available -> {
+			if(!available || this.settings.getUseLocal() || !this.settings.getRememberLogin()) {
+				this.listener.storageReady(false);
+				return false;
+			}
+			
+			String username = this.settings.getUsername(), token = this.settings.getSessionToken();
+			if(SessionToken.isCurrent(token, username)) {
+				//Trust the cached session until the storage has checked it
+				this.settings.setAccountType(this.settings.getSessionAccountType());
+				this.settings.setIsLoggedIn(true);
+				this.listener.storageReady(true);
+				
+				SessionResult result = storage.resumeSession(username, token, this.settings);
+				if(result == SessionResult.REJECTED) {
+					this.endSession();
+				} else if(result == SessionResult.UNAVAILABLE) {
+					System.err.println("[WARNING] Keeping the remembered login, it will be checked the next time the storage can be reached.");
+				}
+				this.settings.saveAccountConfig();
+				boolean valid = result != SessionResult.REJECTED;
+				this.listener.sessionChecked(valid);
+				return valid;
+			} else if(!this.settings.getPassword().isEmpty()) {
+				//Remembered by an older version, so login with the password one last time and remember the session instead
+				boolean loggedIn = storage.login(username, this.settings.getPassword(), this.settings);
+				if(!loggedIn) this.endSession();
+				this.settings.setPassword("");
+				this.settings.saveAccountConfig();
+				this.listener.storageReady(loggedIn);
+				return loggedIn;
+			}
+			
+			this.endSession();
+			this.listener.storageReady(false);
+			return false;
+		}, this.connectPool);
+
+		//Connections still running after their timeout keep their threads until they finish
+		login.whenComplete((result, e) -> {
+			this.connectPool.shutdown();
+			this.timer.shutdown();
+		});
+		return login;
+	}
+
+	/**
+	 * Logs out and forgets the session token (it has expired or is no longer valid)
+	 */
+	private void endSession() {
+		this.settings.setIsLoggedIn(false);
+		this.settings.setSessionToken("");
+		this.settings.setSessionAccountType("");
+	}
+	
+	/**
+	 * Connects $service on its own thread, giving up on it after $timeoutMillis (0 waits until it connects)
+	 * @return
+	 * 	Completes with whether $service connected in time
+	 */
+	private CompletableFuture<Boolean> connect(String service, BooleanSupplier connection, long timeoutMillis) {
+		CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+		CompletableFuture.supplyAsync(() -> connection.getAsBoolean(), this.connectPool)
+				.exceptionally(e -> {
+					System.err.println("[WARNING] Could not connect to " + service + ".");
+					System.err.println(e.getMessage());
+					return false;
+				})
+				.thenAccept(available -> {
+					result.complete(available);
+					this.listener.serviceConnected(service, available);	//Also reported after a timeout, in case it connected late
+				});
+
+		if(timeoutMillis > 0) {
+			this.timer.schedule(() -> {
+				if(result.complete(false)) {
+					System.err.println("[WARNING] Timed out connecting to " + service + ", continuing without it.");
+					this.listener.serviceConnected(service, false);
+				}
+			}, timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,301 @@
+/**
+ * Read-through cache in front of another storage.
+ *
+ * Categories, the achievements of each category and the achievements without an image are kept for a time-to-live, so moving back and forth
+ * between windows does not read the storage again. The cache is bounded by weight (one per cached category or achievement), and the least
+ * recently used entries are evicted first. Writes through this storage invalidate exactly the entries they change. The achievements of a
+ * category are held as an AchievementCatalog, so a cached achievement costs a row of int columns rather than an object and a map entry.
+ * Every read returns copies of what is cached, so a caller can change its result freely.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class CachingStorage implements AchieveStorage {
+
+	/**
+	 * A cached result with when it expires and how much of the weight bound it uses
+	 */
+	private static class Entry {
+		private final Object value;
+		private final long expiresAt;
+		private final long weight;
+
+		private Entry(Object value, long expiresAt, long weight) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+			this.weight = weight;
+		}
+	}
+
+	private static final String CATEGORIES_KEY = "categories", NO_IMAGE_KEY = "noImage", ACHIEVEMENTS_KEY = "achievements:";
+
+	private final AchieveStorage storage;
+	private final long ttlNanos;
+	private final long maxWeight;
+
+	private final LinkedHashMap<String, Entry> entries;		//In access order, so the eldest entry is the least recently used
+	private long weight;
+	private long version;									//Changes on every invalidation, so reads that overlap a write are not cached
+
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private final AtomicLong evictions;
+
+	/**
+	 * @param storage
+	 * 	The storage to cache
+	 * @param ttlSeconds
+	 * 	How long a cached result is used for
+	 * @param maxWeight
+	 * 	Most categories and achievements held across every cached result
+	 */
+	public CachingStorage(AchieveStorage storage, int ttlSeconds, long maxWeight) {
+		this.storage = storage;
+		this.ttlNanos = ttlSeconds * 1000000000L;
+		this.maxWeight = Math.max(1, maxWeight);
+
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		this.weight = 0;
+		this.version = 0;
+
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+		this.evictions = new AtomicLong();
+	}
+
+	@Override
+	public <T extends AchieveStorage> T unwrap(Class<T> type) {
+		return type.isInstance(this) ? type.cast(this) : this.storage.unwrap(type);
+	}
+
+	/**Get number of reads answered from the cache*/
+	public long getHits() {return this.hits.get();}
+
+	/**Get number of reads passed on to the storage*/
+	public long getMisses() {return this.misses.get();}
+
+	/**Get number of entries evicted to stay within the weight bound*/
+	public long getEvictions() {return this.evictions.get();}
+
+	//Connection -------------------------------------------------------------
+
+	@Override
+	public void connect(AchieveSettings settings) {
+		this.invalidateAll();
+		this.storage.connect(settings);
+	}
+
+	@Override
+	public void close() {
+		System.err.println("[SUCCESS] Cache hits: " + this.getHits() + ", misses: " + this.getMisses() + ", evictions: " + this.getEvictions());
+		this.invalidateAll();
+		this.storage.close();
+	}
+
+	@Override
+	public void createDatabase() {
+		this.storage.createDatabase();
+		this.invalidateAll();
+	}
+
+	@Override
+	public void createKey() {
+		this.storage.createKey();
+	}
+
+	//Accounts ---------------------------------------------------------------
+
+	@Override
+	public CreateResult createAccount(String username, String email, String password, AchieveSettings settings) {
+		return this.storage.createAccount(username, email, password, settings);
+	}
+
+	@Override
+	public boolean login(String username, String password, AchieveSettings settings) {
+		return this.storage.login(username, password, settings);
+	}
+
+	@Override
+	public SessionResult resumeSession(String username, String sessionToken, AchieveSettings settings) {
+		return this.storage.resumeSession(username, sessionToken, settings);
+	}
+
+	//Reads ------------------------------------------------------------------
+
+	@Override
+	public Map<String, Double> getCategories() {
+		Map<String, Double> categories = this.read(CATEGORIES_KEY, () -> this.storage.getCategories());
+		return new TreeMap<String, Double>(categories);
+	}
+
+	/**
+	 * The achievements of each category are cached as a compact catalog rather than as achievement objects, and every read copies them out
+	 * of it, so callers that change their results never change what later readers get
+	 */
+	@Override
+	public Map<String, Achievement> getAchievements(String category) {
+		AchievementCatalog achievements = this.read(ACHIEVEMENTS_KEY + category, () -> {
+			AchievementCatalog.Builder builder = new AchievementCatalog.Builder();
+			for(Map.Entry<String, Achievement> achievement : this.storage.getAchievements(category).entrySet()) {
+				Achievement value = achievement.getValue();
+				builder.add(achievement.getKey(), category, value.description, value.currentProg, value.maxProg, value.imageURL);
+			}
+			return builder.build();
+		});
+		return achievements.getCategory(category).toAchievements();
+	}
+
+	/**
+	 * Gets copies of the cached pairs (see getAchievements)
+	 */
+	@Override
+	public Set<AchievementPair> getNoImageAchievements() {
+		Set<AchievementPair> achievements = this.read(NO_IMAGE_KEY, () -> this.storage.getNoImageAchievements());
+		Set<AchievementPair> copies = new HashSet<AchievementPair>();
+		for(AchievementPair achievement : achievements) {
+			AchievementPair copy = new AchievementPair();
+			copy.title = achievement.title;
+			copy.category = achievement.category;
+			copies.add(copy);
+		}
+		return copies;
+	}
+
+	@Override
+	public boolean isUnique(String title, String category) {
+		return this.storage.isUnique(title, category);
+	}
+
+	/**
+	 * Gets the cached result under $key, loading (and caching) it with $loader if it is missing or expired
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T read(String key, Supplier<T> loader) {
+		long readVersion;
+		synchronized(this) {
+			Entry entry = this.entries.get(key);
+			if(entry != null && System.nanoTime() - entry.expiresAt < 0) {
+				this.hits.incrementAndGet();
+				return (T) entry.value;
+			}
+			if(entry != null) this.removeEntry(key);
+			readVersion = this.version;
+		}
+
+		this.misses.incrementAndGet();
+		T value = loader.get();
+
+		/*
+		 * Empty results are not cached, since the storage also returns them when a read fails
+		 */
+		long valueWeight = 1 + ((value instanceof AchievementCatalog) ? ((AchievementCatalog) value).size()
+				: (value instanceof Map) ? ((Map<?, ?>) value).size() : ((Set<?>) value).size());
+		if(valueWeight > 1 && valueWeight <= this.maxWeight) {
+			synchronized(this) {
+				if(readVersion == this.version) {
+					this.removeEntry(key);
+					this.entries.put(key, new Entry(value, System.nanoTime() + this.ttlNanos, valueWeight));
+					this.weight += valueWeight;
+					this.evict();
+				}
+			}
+		}
+		return value;
+	}
+
+	//Writes -----------------------------------------------------------------
+
+	@Override
+	public CreateResult createAchievement(String title, String category, String description, int maxProg, String imageURL) {
+		CreateResult result = this.storage.createAchievement(title, category, description, maxProg, imageURL);
+		if(result == CreateResult.CREATED) this.invalidate(CATEGORIES_KEY, ACHIEVEMENTS_KEY + category, NO_IMAGE_KEY);
+		return result;
+	}
+
+	@Override
+	public Progress incrementProgress(String title, String category, int delta) {
+		Progress progress = this.storage.incrementProgress(title, category, delta);
+		if(progress != null && progress.currentProg != progress.previousProg) this.invalidate(CATEGORIES_KEY, ACHIEVEMENTS_KEY + category);	//The image is unchanged
+		return progress;
+	}
+
+	@Override
+	public void changeAchievementImage(String title, String category, String imageURL) {
+		this.storage.changeAchievementImage(title, category, imageURL);
+		this.invalidate(ACHIEVEMENTS_KEY + category, NO_IMAGE_KEY);	//Progress is unchanged, so the categories stay cached
+	}
+
+	@Override
+	public void deleteAchievement(String achievement, String category) {
+		this.storage.deleteAchievement(achievement, category);
+		this.invalidate(CATEGORIES_KEY, ACHIEVEMENTS_KEY + category, NO_IMAGE_KEY);
+	}
+
+	@Override
+	public BatchWriter.Result deleteCategory(String category) {
+		BatchWriter.Result result = this.storage.deleteCategory(category);
+		this.invalidate(CATEGORIES_KEY, ACHIEVEMENTS_KEY + category, NO_IMAGE_KEY);
+		return result;
+	}
+
+	@Override
+	public String createImageURL(String achieveTitle, String category, File image) {
+		return this.storage.createImageURL(achieveTitle, category, image);
+	}
+
+	//Cache ------------------------------------------------------------------
+
+	/**
+	 * Removes the entries under $keys
+	 */
+	private synchronized void invalidate(String... keys) {
+		this.version++;
+		for(String key : keys) {
+			this.removeEntry(key);
+		}
+	}
+
+	/**
+	 * Removes every entry
+	 */
+	public synchronized void invalidateAll() {
+		this.version++;
+		this.entries.clear();
+		this.weight = 0;
+	}
+
+	private void removeEntry(String key) {
+		Entry removed = this.entries.remove(key);
+		if(removed != null) this.weight -= removed.weight;
+	}
+
+	/**
+	 * Evicts the least recently used entries until the cache is within its weight bound
+	 */
+	private void evict() {
+		Iterator<Entry> eldest = this.entries.values().iterator();
+		while(this.weight > this.maxWeight && eldest.hasNext()) {
+			this.weight -= eldest.next().weight;
+			eldest.remove();
+			this.evictions.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * Running totals of the progress of every achievement within a category.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.util.Map;
+
+public class CategoryProgress {
+
+	public long currentProg = 0;
+	public long maxProg = 0;
+	public long achievements = 0;
+
+	/**
+	 * Adds a single achievement to the totals
+	 * @param currentProg
+	 * 	Current progress of the achievement
+	 * @param maxProg
+	 * 	Max progress of the achievement
+	 */
+	public void add(int currentProg, int maxProg) {
+		this.currentProg += currentProg;
+		this.maxProg += maxProg;
+		this.achievements++;
+	}
+
+	/**
+	 * Takes a single achievement out of the totals
+	 * @param currentProg
+	 * 	Current progress of the achievement
+	 * @param maxProg
+	 * 	Max progress of the achievement
+	 */
+	public void remove(int currentProg, int maxProg) {
+		this.currentProg -= currentProg;
+		this.maxProg -= maxProg;
+		this.achievements--;
+	}
+
+	/**
+	 * Adds the totals of $other to this
+	 */
+	public void merge(CategoryProgress other) {
+		this.currentProg += other.currentProg;
+		this.maxProg += other.maxProg;
+		this.achievements += other.achievements;
+	}
+
+	/**
+	 * @return
+	 * 	Fraction of the category that is complete (0 if the category has no progress to make)
+	 */
+	public double getPercentage() {
+		return (this.maxProg == 0) ? 0 : this.currentProg / (1.0 * this.maxProg);
+	}
+
+	/**
+	 * Merges every category of $from into $into
+	 * @return
+	 * 	$into
+	 */
+	public static Map<String, CategoryProgress> mergeAll(Map<String, CategoryProgress> into, Map<String, CategoryProgress> from) {
+		for(Map.Entry<String, CategoryProgress> category : from.entrySet()) {
+			CategoryProgress existing = into.putIfAbsent(category.getKey(), category.getValue());
+			if(existing != null) existing.merge(category.getValue());
+		}
+		return into;
+	}
+}
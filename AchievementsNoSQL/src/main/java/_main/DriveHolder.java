@@ -0,0 +1,135 @@
+/**
+ * Creates the Google Drive client the first time it is needed.
+ *
+ * Connecting only records the Drive properties; the HTTP transport, the authorization flow and the client are built on the first image
+ * upload, so sessions that never upload never build them. Authorization reuses the credential saved in the token store, so the browser is
+ * only opened when there is no saved credential. Callers that need the client while it is being authorized wait on the same authorization
+ * (up to the Drive connect timeout), and a failed authorization is tried again by the next caller.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInstalledApp;
+import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
+import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
+import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.store.FileDataStoreFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.DriveScopes;
+
+public class DriveHolder {
+
+	private static final String APPLICATION_NAME = "Achievement Manager";
+	private static final String TOKENS_DIRECTORY = "tokens";	//Saved credentials, reused between sessions
+
+	private final String clientId, clientSecret;
+	private final long timeoutMillis;
+
+	private volatile Drive drive;
+	private CompletableFuture<Drive> creating;		//Authorization in progress, guarded by this
+
+	/**
+	 * Records the Drive properties of $settings without connecting
+	 */
+	public DriveHolder(AchieveSettings settings) {
+		this.clientId = settings.getDriveClientId();
+		this.clientSecret = settings.getDriveSecretId();
+		this.timeoutMillis = settings.getDriveConnectTimeoutMillis();
+		this.drive = null;
+		this.creating = null;
+	}
+
+	/**
+	 * @return
+	 * 	Whether the client has been created
+	 */
+	public boolean isConnected() {return this.drive != null;}
+
+	/**
+	 * Gets the client, creating it (and authorizing if there is no saved credential) on first use
+	 * @return
+	 * 	The Drive client
+	 * @throws Exception
+	 * 	If the client could not be created, or authorization did not finish within the Drive connect timeout
+	 */
+	public Drive get() throws Exception {
+		Drive drive = this.drive;
+		if(drive != null) return drive;
+
+		CompletableFuture<Drive> creating;
+		synchronized(this) {
+			if(this.drive != null) return this.drive;
+			if(this.creating == null) {
+				this.creating = new CompletableFuture<Drive>();
+				final CompletableFuture<Drive> result = this.creating;
+				Thread thread = new Thread(() -> this.create(result), "drive-connect");		//Authorization can wait on the browser for as long as the user takes
+				thread.setDaemon(true);
+				thread.start();
+			}
+			creating = this.creating;
+		}
+
+		try {
+			return (this.timeoutMillis > 0) ? creating.get(this.timeoutMillis, TimeUnit.MILLISECONDS) : creating.get();
+		} catch (ExecutionException e) {
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		} catch (TimeoutException e) {
+			throw new TimeoutException("Google Drive authorization did not finish within " + this.timeoutMillis + "ms.");
+		}
+	}
+
+	/**
+	 * Builds the transport and client, completing $result with the client (or the failure, so the next caller tries again)
+	 */
+	private void create(CompletableFuture<Drive> result) {
+		try {
+			final NetHttpTransport transport = GoogleNetHttpTransport.newTrustedTransport();
+			final JsonFactory jsonFactory = JacksonFactory.getDefaultInstance();
+			final List<String> scopes = Collections.singletonList(DriveScopes.DRIVE_FILE);
+
+			//Create flow and trigger user authorization request (only if no credential was saved)
+			GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
+					transport, jsonFactory, this.clientId, this.clientSecret, scopes)
+					.setDataStoreFactory(new FileDataStoreFactory(new File(TOKENS_DIRECTORY)))
+					.setAccessType("offline")
+					.build();
+			LocalServerReceiver receiver = new LocalServerReceiver.Builder().setPort(8888).build();
+			Credential httpRequestInitializer = new AuthorizationCodeInstalledApp(flow, receiver).authorize("user");
+
+			//Create new Google Drive client
+			Drive drive = new Drive.Builder(transport, jsonFactory, httpRequestInitializer)
+					.setApplicationName(APPLICATION_NAME)
+					.build();
+			this.drive = drive;
+			System.err.println("[SUCCESS] Connected to Google Drive.");
+			result.complete(drive);
+		} catch (Exception e) {
+			System.err.println("[WARNING] Could not connect to Google Drive.");
+			System.err.println(e.getMessage());
+			synchronized(this) {
+				this.creating = null;
+			}
+			result.completeExceptionally(e);
+		}
+	}
+}
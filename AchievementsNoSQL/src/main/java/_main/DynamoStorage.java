@@ -0,0 +1,1740 @@
+/**
+ * Stores achievement program data within AWS: user accounts and achievements in DynamoDB, and images on Google Drive.
+ * Passwords are stored as salted PBKDF2 hashes (optionally keyed with a pepper protected by KMS) and checked locally, so logging in
+ * is a single read. Passwords stored before hashing (encrypted with KMS) are replaced with a hash on their owner's next login.
+ * The email of each account is envelope encrypted (see AccountCrypto) unless encryptAccounts is false. The password hash is stored
+ * unencrypted, as it is already salted and slow to guess, so a login never waits on a KMS Decrypt; hashes encrypted by older versions
+ * still verify and are stored unencrypted on their owner's next login.
+ * 
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ * 
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ * 
+ * @author Matthew Crabtree
+ * 
+ */
+
+package _main;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.document.DynamoDB;
+import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.document.PrimaryKey;
+import com.amazonaws.services.dynamodbv2.document.Table;
+import com.amazonaws.services.dynamodbv2.document.UpdateItemOutcome;
+import com.amazonaws.services.dynamodbv2.document.spec.DeleteItemSpec;
+import com.amazonaws.services.dynamodbv2.document.spec.GetItemSpec;
+import com.amazonaws.services.dynamodbv2.document.spec.PutItemSpec;
+import com.amazonaws.services.dynamodbv2.document.spec.UpdateItemSpec;
+import com.amazonaws.services.dynamodbv2.document.utils.ValueMap;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.CreateGlobalSecondaryIndexAction;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexUpdate;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.ResourceInUseException;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.amazonaws.services.kms.AWSKMS;
+import com.amazonaws.services.kms.AWSKMSClientBuilder;
+import com.amazonaws.services.kms.model.CreateAliasRequest;
+import com.amazonaws.services.kms.model.CreateKeyRequest;
+import com.amazonaws.services.kms.model.CreateKeyResult;
+import com.amazonaws.services.kms.model.DecryptRequest;
+import com.amazonaws.services.kms.model.DecryptResult;
+import com.amazonaws.services.kms.model.EncryptRequest;
+import com.amazonaws.services.kms.model.EncryptResult;
+import com.amazonaws.util.BinaryUtils;
+import com.google.api.client.http.FileContent;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.Permission;
+
+
+public class DynamoStorage implements AchieveStorage {
+	
+	private DynamoDB awsDb;
+	private AmazonDynamoDB awsDbClient;
+	private AWSKMS awsKeyClient;
+	private DriveHolder drive;
+	private int scanPageSize;
+	private ForkJoinPool scanPool;
+	private ParallelScan parallelScan;
+	private int scanSegments;
+	private long scanSegmentsCheckedAt;
+	private ScheduledExecutorService reconciler;
+	private ExecutorService writePool;
+	private int batchWritesInFlight;
+	private WriteBehindQueue writeQueue;
+	private ProgressCoalescer progressCoalescer;
+	private PasswordHasher passwordHasher;
+	private boolean usePepper;
+	private volatile byte[] pepper;		//Decrypted once per connection, guarded by pepperLock while fetched
+	private AccountCrypto accountCrypto;
+	private boolean encryptAccounts;
+	private final Object pepperLock = new Object();
+	private final Map<List<String>, Integer> maxProgs = new LinkedHashMap<List<String>, Integer>(16, 0.75f, true) {	//[title, category] to max progress, least recently used first
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<String>, Integer> eldest) {
+			return this.size() > MAX_PROG_CACHE_SIZE;
+		}
+	};
+	private Set<String> activeIndexes;
+	private long activeIndexesCheckedAt;
+	
+	private static final String KEY_NAME = "alias/Achieve_Test2", KEY_DESC = "Key for protecting DynamoDB Acheive_Account passwords."; 	//Encryption key name and description
+	private static final String PEPPER_USERNAME = "#pepper";	//Account table item holding the KMS-encrypted password pepper
+	private static final int PEPPER_BYTES = 32;
+	private static final String ACCOUNT_TABLE_NAME = "Achieve_Account", ACHIEVE_TABLE_NAME = "Achieve_Achievements", CATEGORY_TABLE_NAME = "Achieve_Categories"; //Database table names
+	private static final String CATEGORY_INDEX_NAME = "category-title-index";	//Achievement table index keyed by (category, title)
+	private static final String NEEDS_IMAGE_INDEX_NAME = "needsImage-category-index", NEEDS_IMAGE = "Y";	//Sparse index of achievements that have no image yet
+	private static final long INDEX_WAIT_MILLIS = 30 * 60 * 1000, INDEX_POLL_MILLIS = 5000;	//How long (and how often) setup waits on a new index
+	private static final long SEGMENT_REFRESH_MILLIS = 10 * 60 * 1000;	//How long the chosen number of scan segments (and known indexes) are reused
+	public static final int MAX_BATCH_GET_SIZE = 100;		//Most keys DynamoDB accepts in one BatchGetItem
+	private static final int MAX_BATCH_GET_ATTEMPTS = 8;	//Attempts for unprocessed keys before the lookup fails
+	private static final long BATCH_GET_BACKOFF_MILLIS = 50;	//First retry delay of unprocessed keys, doubled on every further attempt
+	private static final int MAX_PROG_CACHE_SIZE = 10000;		//Most achievements whose max progress is remembered for increments
+
+	
+	
+	/**
+	 * Constructor for storage that is not connected to AWS yet (see connect)
+	 */
+	public DynamoStorage () {
+		this.awsDb = null;
+		this.awsDbClient = null;
+		this.awsKeyClient = null;
+		this.drive = null;
+		this.scanPageSize = 0;
+		this.scanPool = null;
+		this.parallelScan = null;
+		this.scanSegments = 0;
+		this.scanSegmentsCheckedAt = 0;
+		this.reconciler = null;
+		this.activeIndexes = Collections.emptySet();
+		this.activeIndexesCheckedAt = 0;
+		this.writePool = null;
+		this.batchWritesInFlight = 1;
+		this.writeQueue = null;
+		this.progressCoalescer = null;
+		this.passwordHasher = null;
+		this.usePepper = false;
+		this.pepper = null;
+		this.accountCrypto = null;
+		this.encryptAccounts = false;
+	}
+	
+	/**
+	 * Attempts to connect to DynamoDB and KMS using those stored in the local properties (Google Drive is connected on first upload)
+	 */
+	@Override
+	public void connect(AchieveSettings settings) {
+		this.connectDatabase(settings);
+		this.connectKMS(settings);
+		this.connectDrive(settings);
+	}
+	
+	/**
+	 * Writes any queued image changes and progress, then stops the background category reconciliation, the scan and write pools and the AWS clients
+	 */
+	@Override
+	public void close() {
+		this.closeProgressCoalescer();
+		this.closeWriteQueue();
+		this.startReconciler(0);
+		if(this.scanPool != null) this.scanPool.shutdown();
+		if(this.writePool != null) this.writePool.shutdown();
+		this.scanPool = null;
+		this.writePool = null;
+		
+		if(this.awsDbClient != null) this.awsDbClient.shutdown();
+		if(this.awsKeyClient != null) this.awsKeyClient.shutdown();
+		this.awsDbClient = null;
+		this.awsDb = null;
+		this.awsKeyClient = null;
+	}
+	
+	/**
+	 * Attempts to establish a connection to the AWS NoSQL database using those stored in the local properties
+	 * This will be stored for future uses of this class.
+	 * 
+	 * @param settings
+	 * 	Local properties
+	 * @return
+	 * 	Whether the connection was made
+	 */
+	public boolean connectDatabase(AchieveSettings settings) {
+		try {
+			AmazonDynamoDB previousClient = this.awsDbClient;
+    		this.awsDbClient = AmazonDynamoDBClientBuilder.standard()
+        			.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(settings.getDynamoDbEndpoint(), settings.getDynamoDbRegion()))
+        			.withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials(settings.getDynamoDbAccessKey(), settings.getDynamoDbSecretKey())))
+        			.withClientConfiguration(clientConfiguration(settings, PredefinedRetryPolicies.getDynamoDBDefaultRetryPolicyWithCustomMaxRetries(settings.getAwsMaxRetries())))
+        			.build();
+    		
+    		this.awsDb= new DynamoDB(this.awsDbClient);
+    		this.scanPageSize = settings.getScanPageSize();
+    		
+    		if(this.scanPool != null) this.scanPool.shutdown();
+    		this.scanPool = new ForkJoinPool(settings.getScanThreads());
+    		this.parallelScan = new ParallelScan(this.awsDbClient, this.scanPool, this.scanPageSize);
+    		
+    		this.closeProgressCoalescer();
+    		this.closeWriteQueue();
+    		if(this.writePool != null) this.writePool.shutdown();
+    		this.batchWritesInFlight = settings.getBatchWritesInFlight();
+    		this.writePool = Executors.newFixedThreadPool(this.batchWritesInFlight);
+    		if(settings.getWriteBehindMillis() > 0) {
+    			this.writeQueue = new WriteBehindQueue(this.awsDbClient, ACHIEVE_TABLE_NAME, this.writePool, this.batchWritesInFlight, settings.getWriteBehindMillis(), NEEDS_IMAGE);
+    		}
+    		if(settings.getProgressFlushMillis() > 0) {
+    			this.progressCoalescer = new ProgressCoalescer((title, category, delta) -> this.sendIncrement(title, category, delta), this.batchWritesInFlight, settings.getProgressFlushMillis());
+    		}
+    		if(previousClient != null) previousClient.shutdown();	//Only once the queued writes above have been sent through it
+    		this.warmConnections(settings.getAwsWarmConnections());
+    		this.scanSegments = 0;
+    		this.activeIndexesCheckedAt = 0;
+    		this.passwordHasher = new PasswordHasher(settings.getPasswordHashIterations());
+    		this.usePepper = settings.getPasswordPepper();
+    		this.pepper = null;
+    		
+    		this.startReconciler(settings.getReconcileMinutes());
+    		
+    		System.err.println("[SUCCESS] Connected to DynamoDB.");
+    		return true;
+    	} catch (Exception e) {
+    		System.err.println("[WARNING] Could not connect to DynamoDB.");
+    		System.err.println(e.getMessage());
+    		return false;
+    	}
+	}
+	
+	/**
+	 * Builds the HTTP client configuration shared by the DynamoDB and KMS clients from the local properties
+	 * @param retryPolicy
+	 * 	Retry policy of the service (each service has its own retryable errors and backoff)
+	 */
+	private static ClientConfiguration clientConfiguration(AchieveSettings settings, RetryPolicy retryPolicy) {
+		return new ClientConfiguration()
+				.withMaxConnections(settings.getAwsMaxConnections())
+				.withConnectionTimeout(settings.getAwsConnectionTimeoutMillis())
+				.withSocketTimeout(settings.getAwsSocketTimeoutMillis())
+				.withRequestTimeout(settings.getAwsRequestTimeoutMillis())
+				.withConnectionMaxIdleMillis(settings.getAwsMaxIdleMillis())
+				.withTcpKeepAlive(settings.getAwsTcpKeepAlive())
+				.withGzip(settings.getAwsGzip())
+				.withRetryPolicy(retryPolicy);
+	}
+	
+	/**
+	 * Opens $connections connections to DynamoDB in the background (each with a cheap DescribeTable),
+	 * so the first reads and batch writes do not pay for TCP and TLS handshakes
+	 */
+	private void warmConnections(int connections) {
+		final AmazonDynamoDB client = this.awsDbClient;
+		for(int i = 0; i < connections; i++) {
+			this.writePool.execute(() -> {
+				try {
+					client.describeTable(ACHIEVE_TABLE_NAME);
+				} catch (Exception e) {
+					//The table may not exist yet, the connection is open either way
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Writes anything still queued and stops queuing writes
+	 */
+	private void closeWriteQueue() {
+		if(this.writeQueue != null) this.writeQueue.close();
+		this.writeQueue = null;
+	}
+	
+	/**
+	 * Sends any progress increments still being combined and stops combining them
+	 */
+	private void closeProgressCoalescer() {
+		if(this.progressCoalescer != null) this.progressCoalescer.close();
+		this.progressCoalescer = null;
+	}
+	
+	/**
+	 * Writes any queued image changes, so that the table is up to date before it is read
+	 */
+	private void flushWrites() {
+		if(this.writeQueue != null) this.writeQueue.flush();
+	}
+	
+	/**
+	 * Attempts to establish a connection to AWS KMS using those stored in the local properties
+	 * This will be stored for future uses of this class.
+	 * 
+	 * @param settings
+	 * 	Local properties
+	 * @return
+	 * 	Whether the connection was made
+	 */
+	public boolean connectKMS(AchieveSettings settings) {
+    	try {
+    		AWSKMS previousClient = this.awsKeyClient;
+    		this.awsKeyClient = AWSKMSClientBuilder.standard()
+        			.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(settings.getKmsEndpoint(), settings.getKmsRegion()))
+        			.withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials(settings.getKmsAccessKey(), settings.getKmsSecretKey())))
+        			.withClientConfiguration(clientConfiguration(settings, PredefinedRetryPolicies.getDefaultRetryPolicyWithCustomMaxRetries(settings.getAwsMaxRetries())))
+        			.build();
+    		if(previousClient != null) previousClient.shutdown();
+    		this.pepper = null;
+    		
+    		//Always able to decrypt account attributes, even once encryptAccounts is turned off
+    		this.accountCrypto = new AccountCrypto(settings, KEY_NAME, ACCOUNT_TABLE_NAME, this.awsKeyClient);
+    		this.encryptAccounts = settings.getEncryptAccounts();
+    		System.err.println("[SUCCESS] Connected to KMS.");
+    		return true;
+    	} catch (Exception e) {
+    		System.err.println("[WARNING] Could not connect to KMS.");
+    		System.err.println(e.getMessage());
+    		return false;
+    	}
+	}
+	
+	/**
+	 * Records the Google Drive properties stored in the local properties. The Drive client is only created (and authorized,
+	 * unless a credential was saved) on the first image upload, so sessions that never upload never build it.
+	 * 
+	 * @param settings
+	 * 	Local properties
+	 */
+	public void connectDrive(AchieveSettings settings) {
+		this.drive = new DriveHolder(settings);
+	}
+	
+	/**
+	 * Makes sure the achievement table has the global secondary index $indexName, creating it if it is missing, and waits (up to
+	 * INDEX_WAIT_MILLIS) for it to become active
+	 * @return
+	 * 	Whether the index is active, so the table can take another index update
+	 */
+	private boolean ensureIndex(String indexName, String hashKey, String rangeKey, ProjectionType projectionType) {
+		try {
+			if(this.indexStatus(indexName) == null && !this.createIndex(indexName, hashKey, rangeKey, projectionType)) return false;
+			
+			long deadline = System.currentTimeMillis() + INDEX_WAIT_MILLIS;
+			while(true) {
+				TableDescription table = this.awsDbClient.describeTable(ACHIEVE_TABLE_NAME).getTable();
+				if("ACTIVE".equals(table.getTableStatus()) && "ACTIVE".equals(this.indexStatus(indexName))) {
+					this.activeIndexesCheckedAt = 0;
+					System.err.println("[SUCCESS] Index is active: " + indexName);
+					return true;
+				}
+				if(System.currentTimeMillis() > deadline) {
+					System.err.println("[WARNING] Index " + indexName + " is still being created.");
+					return false;
+				}
+				Thread.sleep(INDEX_POLL_MILLIS);
+			}
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not check index: " + indexName);
+			System.err.println(e.getMessage());
+			return false;
+		}
+	}
+	
+	/**
+	 * @return
+	 * 	Status of the achievement table's global secondary index $indexName (CREATING, ACTIVE, ...), or null if there is no such index
+	 */
+	private String indexStatus(String indexName) {
+		List<GlobalSecondaryIndexDescription> descriptions = this.awsDbClient.describeTable(ACHIEVE_TABLE_NAME).getTable().getGlobalSecondaryIndexes();
+		if(descriptions != null) {
+			for(GlobalSecondaryIndexDescription description : descriptions) {
+				if(indexName.equals(description.getIndexName())) return description.getIndexStatus();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Attempts to add a global secondary index to the existing achievement table. DynamoDB fills the index in the background,
+	 * and it is only used once it becomes active.
+	 * @param indexName
+	 * 	Name of the index
+	 * @param hashKey
+	 * 	String attribute to partition the index by
+	 * @param rangeKey
+	 * 	String attribute to sort the index by
+	 * @param projectionType
+	 * 	Which attributes to copy into the index
+	 * @return
+	 * 	Whether DynamoDB started creating the index
+	 */
+	private boolean createIndex(String indexName, String hashKey, String rangeKey, ProjectionType projectionType) {
+		try {
+			UpdateTableRequest updateTableRequest = new UpdateTableRequest()
+					.withTableName(ACHIEVE_TABLE_NAME)
+					.withAttributeDefinitions(new AttributeDefinition(hashKey, ScalarAttributeType.S),
+						new AttributeDefinition(rangeKey, ScalarAttributeType.S))
+					.withGlobalSecondaryIndexUpdates(new GlobalSecondaryIndexUpdate().withCreate(new CreateGlobalSecondaryIndexAction()
+							.withIndexName(indexName)
+							.withKeySchema(new KeySchemaElement(hashKey, KeyType.HASH), // Partition key
+								new KeySchemaElement(rangeKey, KeyType.RANGE)) // Sort key
+							.withProjection(new Projection().withProjectionType(projectionType))
+							.withProvisionedThroughput(new ProvisionedThroughput(10L, 10L))));
+			this.awsDbClient.updateTable(updateTableRequest);
+			this.activeIndexesCheckedAt = 0;
+			System.err.println("[SUCCESS] Started creating index: " + indexName);
+			return true;
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not create index: " + indexName);
+			System.err.println(e.getMessage());
+			return false;
+		}
+	}
+	
+	/**
+	 * Checks if the achievement table has a usable (active) global secondary index named $indexName.
+	 * The index list is cached for SEGMENT_REFRESH_MILLIS.
+	 */
+	private boolean isIndexActive(String indexName) {
+		if(this.activeIndexesCheckedAt == 0 || System.currentTimeMillis() - this.activeIndexesCheckedAt > SEGMENT_REFRESH_MILLIS) this.describeIndexes();
+		return this.activeIndexes.contains(indexName);
+	}
+	
+	/**
+	 * Refreshes the names of the active global secondary indexes of the achievement table
+	 */
+	private void describeIndexes() {
+		Set<String> indexes = new HashSet<String>();
+		try {
+			List<GlobalSecondaryIndexDescription> descriptions = this.awsDbClient.describeTable(ACHIEVE_TABLE_NAME).getTable().getGlobalSecondaryIndexes();
+			if(descriptions != null) {
+				for(GlobalSecondaryIndexDescription description : descriptions) {
+					if("ACTIVE".equals(description.getIndexStatus())) indexes.add(description.getIndexName());
+				}
+			}
+		} catch (Exception e) {
+			System.err.println("[WARNING] Could not describe achievement table indexes.");
+			System.err.println(e.getMessage());
+		}
+		this.activeIndexes = indexes;
+		this.activeIndexesCheckedAt = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Sets the sparse needsImage attribute on every achievement within the AWS DynamoDB that has the missing image text but no needsImage yet
+	 * (achievements created before the needsImage index existed)
+	 */
+	private void markNeedsImage() {
+		final Table achieveTable = this.awsDb.getTable(ACHIEVE_TABLE_NAME);
+		Map<String, AttributeValue> expressionAttributeValues = new TreeMap<String, AttributeValue>();
+		expressionAttributeValues.put(":imageURL", new AttributeValue().withS(MISSING_IMAGE_TEXT));
+		
+		try {
+			int marked = this.scanAchievements("title, category", "imageURL = :imageURL and attribute_not_exists(needsImage)", expressionAttributeValues).forEach(new ItemPager.Visitor() {
+				@Override
+				public boolean visit(Map<String, AttributeValue> item) {
+					try {
+						achieveTable.updateItem(new UpdateItemSpec().withPrimaryKey("title", item.get("title").getS(), "category", item.get("category").getS())
+								.withUpdateExpression("set needsImage = :n")
+								.withConditionExpression("attribute_exists(title)")
+								.withValueMap(new ValueMap().withString(":n", NEEDS_IMAGE)));
+					} catch (ConditionalCheckFailedException e) {
+						//Deleted since the scan, so it is not made again
+					}
+					return true;
+				}
+			});
+			System.err.println("[SUCCESS] Marked " + marked + " achievements as needing an image.");
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not mark achievements as needing an image.");
+			System.err.println(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Attempts to create a new KMS encryption key
+	 */
+	@Override
+	public void createKey () {
+		try {
+			/*
+			 * Create the KMS key
+			 */
+			CreateKeyRequest createKeyRequest = new CreateKeyRequest();
+			createKeyRequest.setDescription(KEY_DESC);
+			CreateKeyResult result = this.awsKeyClient.createKey(createKeyRequest);
+			
+			System.err.println("[SUCCESS] Created new KMS key.");
+			
+			/*
+			 * Give the key an alias
+			 */
+			try {
+				CreateAliasRequest aliasRequest = new CreateAliasRequest();
+				aliasRequest.setAliasName(KEY_NAME);
+				aliasRequest.withTargetKeyId(result.getKeyMetadata().getKeyId());
+				this.awsKeyClient.createAlias(aliasRequest);
+				
+				System.err.println("[SUCCESS] New KMS key was given an alias.");
+			} catch (Exception e2) {
+				System.err.println("[WARNING] Could not give key an alias.");
+				System.err.println(e2.getMessage());
+			}
+		} catch (Exception e1) {
+			System.err.println("[ERROR] Could not create KMS key.");
+			System.err.println(e1.getMessage());
+		}
+	}
+	
+    /**
+     * Attempts to create two new tables for the database using properties stored in $settings
+     * 
+     * The following tables will attempt to be created:
+     * 		Achieve_Accounts(username, password, type)
+     * 		Achieve_Achievements(title, description, curr_prog, max_prog, image_url, category) with an index on (category, title)
+     * 			and a sparse index on (needsImage, category) holding only achievements without an image
+     * 		Achieve_Categories(category, currentProg, maxProg, achievements)
+     */
+	@Override
+	public void createDatabase() {
+		/*
+		 * Create account table
+		 */
+		try {
+    		Table accountTable = this.awsDb.createTable(ACCOUNT_TABLE_NAME,
+                    Arrays.asList(new KeySchemaElement("username", KeyType.HASH)), // Partition key
+                    Arrays.asList(new AttributeDefinition("username", ScalarAttributeType.S)),
+                    new ProvisionedThroughput(10L, 10L));
+                accountTable.waitForActive();
+                System.err.println("[SUCCESS] Account table status: " + accountTable.getDescription().getTableStatus());
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not create account table.");
+    		System.err.println(e.getMessage());
+		}
+		
+		/*
+		 * Create achievement table
+		 */
+		try {
+			CreateTableRequest createTableRequest = new CreateTableRequest()
+					.withTableName(ACHIEVE_TABLE_NAME)
+					.withKeySchema(new KeySchemaElement("title", KeyType.HASH), // Partition key
+	                    new KeySchemaElement("category", KeyType.RANGE)) // Sort key
+					.withAttributeDefinitions(new AttributeDefinition("title", ScalarAttributeType.S),
+	                    new AttributeDefinition("category", ScalarAttributeType.S),
+	                    new AttributeDefinition("needsImage", ScalarAttributeType.S))
+					.withGlobalSecondaryIndexes(new GlobalSecondaryIndex()
+							.withIndexName(CATEGORY_INDEX_NAME)
+							.withKeySchema(new KeySchemaElement("category", KeyType.HASH), // Partition key
+								new KeySchemaElement("title", KeyType.RANGE)) // Sort key
+							.withProjection(new Projection().withProjectionType(ProjectionType.ALL))
+							.withProvisionedThroughput(new ProvisionedThroughput(10L, 10L)),
+						new GlobalSecondaryIndex()
+							.withIndexName(NEEDS_IMAGE_INDEX_NAME)
+							.withKeySchema(new KeySchemaElement("needsImage", KeyType.HASH), // Partition key
+								new KeySchemaElement("category", KeyType.RANGE)) // Sort key
+							.withProjection(new Projection().withProjectionType(ProjectionType.KEYS_ONLY))
+							.withProvisionedThroughput(new ProvisionedThroughput(10L, 10L)))
+					.withProvisionedThroughput(new ProvisionedThroughput(10L, 10L));
+			Table achieveTable = this.awsDb.createTable(createTableRequest);
+	            achieveTable.waitForActive();
+	            System.err.println("[SUCCESS] Achievement table status: " + achieveTable.getDescription().getTableStatus());
+		} catch (ResourceInUseException e) {
+			/*
+			 * Table may be from before the indexes existed, so add them and mark achievements that still need an image.
+			 * DynamoDB only creates one index at a time, so the second is only asked for once the first is active.
+			 */
+			if(this.ensureIndex(CATEGORY_INDEX_NAME, "category", "title", ProjectionType.ALL)) {
+				this.ensureIndex(NEEDS_IMAGE_INDEX_NAME, "needsImage", "category", ProjectionType.KEYS_ONLY);
+			} else {
+				System.err.println("[WARNING] Index " + NEEDS_IMAGE_INDEX_NAME + " was not created, run the database setup again once " + CATEGORY_INDEX_NAME + " is active.");
+			}
+			this.markNeedsImage();
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not create achievement table.");
+    		System.err.println(e.getMessage());
+		}
+		
+		/*
+		 * Create category summary table and fill it from any achievements that already exist
+		 */
+		try {
+			Table categoryTable = this.awsDb.createTable(CATEGORY_TABLE_NAME,
+	                Arrays.asList(new KeySchemaElement("category", KeyType.HASH)), // Partition key
+	                Arrays.asList(new AttributeDefinition("category", ScalarAttributeType.S)),
+	                new ProvisionedThroughput(10L, 10L));
+	            categoryTable.waitForActive();
+	            System.err.println("[SUCCESS] Category table status: " + categoryTable.getDescription().getTableStatus());
+	            this.reconcileCategories();
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not create category table.");
+    		System.err.println(e.getMessage());
+		}
+	}
+	
+	@Override
+	public CreateResult createAccount(String username, String email, String password, AchieveSettings settings) {
+		
+		CreateResult result = CreateResult.FAILED;
+		
+		try {
+    		Table accountTable = this.awsDb.getTable("Achieve_Account");
+    		
+    		/*
+    		 * Add username, email and (hashed) password to the database with the type artist, only if the username is not taken
+    		 */
+    		accountTable.putItem(new PutItemSpec()
+    				.withItem(new Item().withPrimaryKey("username", username).with("email", this.protect("email", email)).with("password", this.hashPassword(password)).withString("type", "artist"))
+    				.withConditionExpression("attribute_not_exists(username)"));
+    		result = CreateResult.CREATED;
+		} catch (ConditionalCheckFailedException e) {
+			result = CreateResult.ALREADY_EXISTS;
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not create account.");
+			System.err.println(e.getMessage());
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public boolean login(String username, String password, AchieveSettings settings) {
+		boolean loggedIn = false;
+		
+		try {
+			Table accountTable = this.awsDb.getTable("Achieve_Account");
+			Item account = accountTable.getItem("username", username);
+			
+			/*
+			 * If there is no account with that username print an error
+			 */
+			if(account != null && account.get("password") != null) {
+				Object storedValue = account.get("password");
+				String storedPassword = this.unprotect("password", storedValue);
+				boolean matches;
+				if(PasswordHasher.isHash(storedPassword)) {
+					/*
+					 * Check the hash locally (only a peppered hash needs the pepper, which is decrypted once per connection)
+					 */
+					matches = PasswordHasher.verify(storedPassword, password, PasswordHasher.isPeppered(storedPassword) ? this.getPepper() : null);
+					if(matches && (this.passwordHasher.needsRehash(storedPassword, this.usePepper) || storedValue instanceof byte[])) {
+						this.replacePassword(username, storedValue, password);
+					}
+				} else {
+					/*
+					 * Passwords from before hashing are encrypted with KMS, so decrypt this one and replace it with a hash
+					 */
+					matches = password.equals(this.decryptPassword(storedPassword));
+					if(matches) this.replacePassword(username, storedValue, password);
+				}
+				
+				/*
+				 * If the stored password and the supplied password don't match print an error
+				 */
+				if(matches) {
+					/*
+					 * Set saved variables of logged in and account type to true and whatever was stored in the database
+					 */
+					this.startSession(username, account.getString("type"), account.getBinary("sessionSecret"), settings);
+					loggedIn = true;
+					System.err.println("[SUCCESS] Successfully logged in.");
+				} else {
+					System.err.println("[ERROR] Incorrect password.");
+				}
+			} else {
+				System.err.println("[ERROR] No account with that username could be found.");
+			}
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not log in.");
+			System.err.println(e.getMessage());
+		}
+		
+		return loggedIn;
+	}
+	
+	/**
+	 * Checks $sessionToken against the session secret of $username with a single read (no password or KMS call needed)
+	 */
+	@Override
+	public SessionResult resumeSession(String username, String sessionToken, AchieveSettings settings) {
+		Item account;
+		try {
+			account = this.awsDb.getTable(ACCOUNT_TABLE_NAME).getItem("username", username);
+		} catch (Exception e) {
+			System.err.println("[WARNING] Could not check login session, the account table could not be read.");
+			System.err.println(e.getMessage());
+			return SessionResult.UNAVAILABLE;
+		}
+		
+		try {
+			if(account != null && SessionToken.verify(sessionToken, username, account.getBinary("sessionSecret"))) {
+				this.startSession(username, account.getString("type"), account.getBinary("sessionSecret"), settings);
+				System.err.println("[SUCCESS] Resumed login session.");
+				return SessionResult.RESUMED;
+			}
+		} catch (Exception e) {
+			System.err.println(e.getMessage());
+		}
+		System.err.println("[ERROR] Login session is no longer valid.");
+		return SessionResult.REJECTED;
+	}
+	
+	/**
+	 * Sets the logged in state and account type of $settings, and gives it a new session token signed with the account's
+	 * session secret. The secret is created the first time the account logs in (unless another login creates it first).
+	 * Failing to make a token is only a warning, as it only loses the remembered login.
+	 * 
+	 * @param sessionSecret
+	 * 	The account's session secret, or null if it has none yet
+	 */
+	private void startSession(String username, String accountType, byte[] sessionSecret, AchieveSettings settings) {
+		settings.setAccountType(accountType);
+		settings.setIsLoggedIn(true);
+		
+		try {
+			if(sessionSecret == null) {
+				UpdateItemOutcome outcome = this.awsDb.getTable(ACCOUNT_TABLE_NAME).updateItem(new UpdateItemSpec()
+						.withPrimaryKey("username", username)
+						.withUpdateExpression("set sessionSecret = if_not_exists(sessionSecret, :secret)")
+						.withValueMap(new ValueMap().withBinary(":secret", SessionToken.newSecret()))
+						.withReturnValues(ReturnValue.ALL_NEW));
+				sessionSecret = outcome.getItem().getBinary("sessionSecret");
+			}
+			settings.setSessionToken(SessionToken.create(username, settings.getSessionDays(), sessionSecret));
+			settings.setSessionAccountType(accountType);
+		} catch (Exception e) {
+			System.err.println("[WARNING] Could not create login session.");
+			System.err.println(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Hashes $password for storage, keyed with the pepper if the local properties ask for one
+	 */
+	private String hashPassword(String password) throws Exception {
+		return this.passwordHasher.hash(password, this.usePepper ? this.getPepper() : null);
+	}
+	
+	/**
+	 * Replaces the stored password of $username with a new hash of $password, unless it has changed since it was read as $storedValue.
+	 * A failure is only a warning, as the old password still works.
+	 */
+	private void replacePassword(String username, Object storedValue, String password) {
+		try {
+			this.awsDb.getTable(ACCOUNT_TABLE_NAME).updateItem(new UpdateItemSpec()
+					.withPrimaryKey("username", username)
+					.withUpdateExpression("set password = :new")
+					.withConditionExpression("password = :old")
+					.withValueMap(new ValueMap().with(":new", this.hashPassword(password)).with(":old", storedValue)));
+			System.err.println("[SUCCESS] Updated stored password hash.");
+		} catch (ConditionalCheckFailedException e) {
+			//Changed since it was read, so the newer password is kept
+		} catch (Exception e) {
+			System.err.println("[WARNING] Could not update stored password hash.");
+			System.err.println(e.getMessage());
+		}
+	}
+	
+	/**
+	 * @return
+	 * 	$value encrypted for $attribute, or $value itself if account attributes are not encrypted
+	 */
+	private Object protect(String attribute, String value) {
+		return this.encryptAccounts ? this.accountCrypto.encrypt(attribute, value) : value;
+	}
+	
+	/**
+	 * @return
+	 * 	The stored $value of $attribute, decrypted if it was encrypted
+	 */
+	private String unprotect(String attribute, Object value) throws GeneralSecurityException {
+		return (value instanceof byte[]) ? this.accountCrypto.decrypt(attribute, (byte[]) value) : (String) value;
+	}
+	
+	/**
+	 * Gets the secret every peppered password hash is keyed with. It is kept in the account table encrypted with the KMS key,
+	 * decrypted with a single KMS call the first time it is needed, and then cached until KMS or the database is reconnected.
+	 * If there is no pepper yet, a random one is created (if another client creates one first, theirs is used).
+	 * 
+	 * @return
+	 * 	The pepper
+	 */
+	private byte[] getPepper() throws Exception {
+		byte[] pepper = this.pepper;
+		if(pepper != null) return pepper;
+		
+		synchronized(this.pepperLock) {
+			if(this.pepper != null) return this.pepper;
+			
+			Table accountTable = this.awsDb.getTable(ACCOUNT_TABLE_NAME);
+			Item item = accountTable.getItem("username", PEPPER_USERNAME);
+			if(item == null) {
+				byte[] created = new byte[PEPPER_BYTES];
+				new SecureRandom().nextBytes(created);
+				EncryptResult encrypted = this.awsKeyClient.encrypt(new EncryptRequest().withKeyId(KEY_NAME).withPlaintext(ByteBuffer.wrap(created)));
+				try {
+					accountTable.putItem(new PutItemSpec()
+							.withItem(new Item().withPrimaryKey("username", PEPPER_USERNAME).withBinary("pepper", BinaryUtils.copyAllBytesFrom(encrypted.getCiphertextBlob())))
+							.withConditionExpression("attribute_not_exists(username)"));
+					System.err.println("[SUCCESS] Created password pepper.");
+					this.pepper = created;
+					return created;
+				} catch (ConditionalCheckFailedException e) {
+					item = accountTable.getItem("username", PEPPER_USERNAME);	//Created by another client first
+				}
+			}
+			
+			DecryptResult decrypted = this.awsKeyClient.decrypt(new DecryptRequest().withCiphertextBlob(ByteBuffer.wrap(item.getBinary("pepper"))));
+			this.pepper = BinaryUtils.copyAllBytesFrom(decrypted.getPlaintext());
+			return this.pepper;
+		}
+	}
+	
+	/**
+	 * Decrypts a password stored before passwords were hashed (encrypted directly with the KMS key)
+	 */
+	public String decryptPassword(String encPassword) {
+		String password = null;
+		
+		try {
+	        byte[] encryptedBytes = BinaryUtils.fromBase64(encPassword);
+	        ByteBuffer encryptedBuffer = ByteBuffer.wrap(encryptedBytes);
+	        DecryptRequest request = new DecryptRequest().withCiphertextBlob(encryptedBuffer);
+	        DecryptResult response = this.awsKeyClient.decrypt(request);
+	        byte[] plaintextBytes = BinaryUtils.copyAllBytesFrom(response.getPlaintext());
+	        password = new String(plaintextBytes, "UTF-8");
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not decrypt password.");
+			System.err.println(e.getMessage());
+		}
+		
+		return password;
+	}
+
+	/**
+	 * Creates a lazy pager over every achievement in the AWS DynamoDB matching $filterExpression.
+	 * Pages are fetched only as the results are iterated, so any number of achievements can be streamed in constant memory.
+	 * @param projectionExpression
+	 * 	The attributes to retrieve for each achievement
+	 * @param filterExpression
+	 * 	Filter that achievements must match (null for every achievement)
+	 * @param expressionAttributeValues
+	 * 	Values used within $filterExpression (null if there are none)
+	 * @return
+	 * 	Pager using the page size from the local properties
+	 */
+	public ItemPager scanAchievements(String projectionExpression, String filterExpression, Map<String, AttributeValue> expressionAttributeValues) {
+		ScanRequest scanRequest = new ScanRequest()
+				.withTableName(ACHIEVE_TABLE_NAME)
+				.withProjectionExpression(projectionExpression)
+				.withFilterExpression(filterExpression)
+				.withExpressionAttributeValues(expressionAttributeValues);
+		
+		return ItemPager.scan(this.awsDbClient, scanRequest).withPageSize(this.scanPageSize);
+	}
+
+	/**
+	 * Creates a lazy pager over a single segment of a parallel scan of every achievement in the AWS DynamoDB
+	 * @param projectionExpression
+	 * 	The attributes to retrieve for each achievement
+	 * @param segment
+	 * 	The segment to scan (0 to $totalSegments - 1)
+	 * @param totalSegments
+	 * 	Number of segments the scan is split into
+	 * @return
+	 * 	Pager using the page size from the local properties
+	 */
+	public ItemPager scanAchievementSegment(String projectionExpression, int segment, int totalSegments) {
+		ScanRequest scanRequest = new ScanRequest()
+				.withTableName(ACHIEVE_TABLE_NAME)
+				.withProjectionExpression(projectionExpression)
+				.withSegment(segment)
+				.withTotalSegments(totalSegments);
+		
+		return ItemPager.scan(this.awsDbClient, scanRequest).withPageSize(this.scanPageSize);
+	}
+
+	/**
+	 * Creates a lazy pager over every achievement in $category within the AWS DynamoDB.
+	 * This is a query on the category index, so it only reads the achievements of $category
+	 * (tables without an active category index fall back to a filtered scan).
+	 * @param category
+	 * 	Category to get the achievements from
+	 * @param projectionExpression
+	 * 	The attributes to retrieve for each achievement
+	 * @return
+	 * 	Pager using the page size from the local properties
+	 */
+	public ItemPager queryCategory(String category, String projectionExpression) {
+		Map<String, AttributeValue> expressionAttributeValues = new TreeMap<String, AttributeValue>();
+		expressionAttributeValues.put(":category", new AttributeValue().withS(category));
+		
+		if(!this.isIndexActive(CATEGORY_INDEX_NAME)) {
+			System.err.println("[WARNING] Category index is not active, scanning for category: " + category);
+			return this.scanAchievements(projectionExpression, "category = :category", expressionAttributeValues);
+		}
+		
+		QueryRequest queryRequest = new QueryRequest()
+				.withTableName(ACHIEVE_TABLE_NAME)
+				.withIndexName(CATEGORY_INDEX_NAME)
+				.withKeyConditionExpression("category = :category")
+				.withProjectionExpression(projectionExpression)
+				.withExpressionAttributeValues(expressionAttributeValues);
+		
+		return ItemPager.query(this.awsDbClient, queryRequest).withPageSize(this.scanPageSize);
+	}
+
+	/**
+	 * Gets a list of all categories (and their progress) from the AWS DynamoDB database.
+	 * The progress is read from the category summary table, so this costs reads proportional to the number of categories.
+	 * @return 
+	 * 		Map of the category names to their percentage complete
+	 */
+	@Override
+	public Map<String, Double> getCategories() {
+		this.flushWrites();
+		Map<String, Double> categories = new TreeMap<String, Double>();
+		try {
+			Map<String, CategoryProgress> summaries;
+			try {
+				summaries = this.getCategorySummaries();
+			} catch (ResourceNotFoundException e) {
+				System.err.println("[WARNING] Category table is missing, summing categories from every achievement.");
+				summaries = this.aggregateCategories();
+			}
+			
+			//Calculate progress of each category
+			for(Map.Entry<String, CategoryProgress> category : summaries.entrySet()) {
+				categories.put(category.getKey(), category.getValue().getPercentage());
+			}
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not get categories from database.");
+			System.err.println(e.getMessage());
+		}
+		
+		return categories;
+ 		
+	}
+	
+	/**
+	 * Gets the stored progress totals of every category from the category summary table within the AWS DynamoDB
+	 * @return
+	 * 	Map of the category names to their progress totals (categories without achievements are left out)
+	 */
+	public Map<String, CategoryProgress> getCategorySummaries() {
+		Map<String, CategoryProgress> summaries = new TreeMap<String, CategoryProgress>();
+		ScanRequest scanRequest = new ScanRequest()
+				.withTableName(CATEGORY_TABLE_NAME)
+				.withProjectionExpression("category, currentProg, maxProg, achievements");
+		
+		for(Map<String, AttributeValue> item : ItemPager.scan(this.awsDbClient, scanRequest).withPageSize(this.scanPageSize)) {
+			String category = null;
+			CategoryProgress progress = new CategoryProgress();
+			for(Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+				String attributeName = attribute.getKey();
+				switch (attributeName){
+					case "category" :
+						category = attribute.getValue().getS();
+						break;
+					case "currentProg":
+						progress.currentProg = Long.parseLong(attribute.getValue().getN());
+						break;
+					case "maxProg":
+						progress.maxProg = Long.parseLong(attribute.getValue().getN());
+						break;
+					case "achievements":
+						progress.achievements = Long.parseLong(attribute.getValue().getN());
+						break;
+					default:
+						System.err.println("[WARNING] Somehow managed to retrieve the attribute: " + attributeName + " when it wasn't being looked for.");
+				}
+			}
+			if(progress.achievements > 0) summaries.put(category, progress);
+		}
+		
+		return summaries;
+	}
+	
+	/**
+	 * Atomically adds to the stored progress totals of $category within the AWS DynamoDB (the summary is created if it does not exist).
+	 * A failure only leaves the summary out of date until the next reconciliation, so it is not treated as an error.
+	 * @param category
+	 * 	The category to update
+	 * @param currentProg
+	 * 	Amount to add to the current progress total
+	 * @param maxProg
+	 * 	Amount to add to the max progress total
+	 * @param achievements
+	 * 	Amount to add to the number of achievements
+	 */
+	private void addToCategorySummary(String category, long currentProg, long maxProg, long achievements) {
+		try {
+			Table table = this.awsDb.getTable(CATEGORY_TABLE_NAME);
+			
+	        UpdateItemSpec updateItemSpec = new UpdateItemSpec().withPrimaryKey("category", category)
+	                .withUpdateExpression("add currentProg :c, maxProg :m, achievements :a")
+	                .withValueMap(new ValueMap().withLong(":c", currentProg).withLong(":m", maxProg).withLong(":a", achievements));
+	        
+	        table.updateItem(updateItemSpec);
+		} catch (Exception e) {
+			System.err.println("[WARNING] Could not update progress of category: " + category);
+			System.err.println(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Rebuilds the category summary table from a full scan of the achievements within the AWS DynamoDB, repairing any drift.
+	 * Summaries of categories that no longer have achievements are removed.
+	 * 
+	 * The summaries are read before the scan, and each one is only replaced (or removed) if it is still what was read. A summary that
+	 * changed in the meantime had an ADD from a write the scan may have missed, so it is left as it is for the next reconciliation
+	 * rather than overwritten with a total that would lose that ADD.
+	 */
+	public void reconcileCategories() {
+		this.flushWrites();
+		try {
+			Map<String, Map<String, AttributeValue>> summaries = new HashMap<String, Map<String, AttributeValue>>();
+			ScanRequest scanRequest = new ScanRequest()
+					.withTableName(CATEGORY_TABLE_NAME)
+					.withConsistentRead(true);
+			for(Map<String, AttributeValue> item : ItemPager.scan(this.awsDbClient, scanRequest)) {
+				summaries.put(item.get("category").getS(), item);
+			}
+			
+			//Consistent, so every achievement write whose ADD is already in the summaries read above is also counted in the totals
+			Map<String, CategoryProgress> totals = this.aggregateCategories(true);
+			Table table = this.awsDb.getTable(CATEGORY_TABLE_NAME);
+			int changed = 0;
+			
+			for(Map.Entry<String, CategoryProgress> category : totals.entrySet()) {
+				CategoryProgress progress = category.getValue();
+				Map<String, AttributeValue> summary = summaries.get(category.getKey());
+				if(summary != null && summaryEquals(summary, progress)) continue;
+				
+				ValueMap values = new ValueMap();
+				try {
+					table.putItem(new PutItemSpec()
+							.withItem(new Item().withPrimaryKey("category", category.getKey()).with("currentProg", progress.currentProg).with("maxProg", progress.maxProg).with("achievements", progress.achievements))
+							.withConditionExpression(unchangedCondition(summary, values))
+							.withValueMap(values.isEmpty() ? null : values));
+				} catch (ConditionalCheckFailedException e) {
+					changed++;
+				}
+			}
+			
+			for(Map.Entry<String, Map<String, AttributeValue>> summary : summaries.entrySet()) {
+				if(totals.containsKey(summary.getKey())) continue;
+				
+				ValueMap values = new ValueMap();
+				try {
+					table.deleteItem(new DeleteItemSpec()
+							.withPrimaryKey("category", summary.getKey())
+							.withConditionExpression(unchangedCondition(summary.getValue(), values))
+							.withValueMap(values.isEmpty() ? null : values));
+				} catch (ConditionalCheckFailedException e) {
+					changed++;
+				}
+			}
+			
+			System.err.println("[SUCCESS] Reconciled " + totals.size() + " category summaries.");
+			if(changed > 0) System.err.println("[WARNING] " + changed + " category summaries changed while reconciling and were left for the next reconciliation.");
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not reconcile category summaries.");
+			System.err.println(e.getMessage());
+		}
+	}
+	
+	/**
+	 * @return
+	 * 	Whether the stored category $summary already holds the totals of $progress
+	 */
+	private static boolean summaryEquals(Map<String, AttributeValue> summary, CategoryProgress progress) {
+		return summaryNumberEquals(summary, "currentProg", progress.currentProg)
+				&& summaryNumberEquals(summary, "maxProg", progress.maxProg)
+				&& summaryNumberEquals(summary, "achievements", progress.achievements);
+	}
+	
+	/**
+	 * @return
+	 * 	Whether the stored category $summary holds $expected as its number $name
+	 */
+	private static boolean summaryNumberEquals(Map<String, AttributeValue> summary, String name, long expected) {
+		AttributeValue value = summary.get(name);
+		return value != null && Long.parseLong(value.getN()) == expected;
+	}
+	
+	/**
+	 * Builds a condition that a category summary is still the $summary that was read (or still does not exist if $summary is null),
+	 * adding the values it compares against to $values
+	 */
+	private static String unchangedCondition(Map<String, AttributeValue> summary, ValueMap values) {
+		if(summary == null) return "attribute_not_exists(category)";
+		
+		StringBuilder condition = new StringBuilder("attribute_exists(category)");
+		for(String name : new String[] {"currentProg", "maxProg", "achievements"}) {
+			AttributeValue value = summary.get(name);
+			if(value == null) {
+				condition.append(" AND attribute_not_exists(").append(name).append(")");
+			} else {
+				condition.append(" AND ").append(name).append(" = :").append(name);
+				values.withLong(":" + name, Long.parseLong(value.getN()));
+			}
+		}
+		return condition.toString();
+	}
+	
+	/**
+	 * Starts reconciling the category summaries in the background every $intervalMinutes (replacing any earlier schedule)
+	 * @param intervalMinutes
+	 * 	Minutes between reconciliations (0 or less disables them)
+	 */
+	private void startReconciler(int intervalMinutes) {
+		if(this.reconciler != null) this.reconciler.shutdownNow();
+		this.reconciler = null;
+		if(intervalMinutes <= 0) return;
+		
+		this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "category-reconciler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.reconciler.scheduleWithFixedDelay(() -> this.reconcileCategories(), intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+	}
+	
+	/**
+	 * Sums the progress of every achievement in the AWS DynamoDB per category.
+	 * The table is scanned in parallel segments, each folding into its own totals, which are merged at the end.
+	 * @return
+	 * 	Map of the category names to their progress totals
+	 */
+	public Map<String, CategoryProgress> aggregateCategories() {
+		return this.aggregateCategories(false);
+	}
+	
+	/**
+	 * Sums the progress of every achievement in the AWS DynamoDB per category (see aggregateCategories)
+	 * @param consistent
+	 * 	True to scan with strongly consistent reads (twice the read capacity), so every write finished before the scan is counted
+	 */
+	private Map<String, CategoryProgress> aggregateCategories(boolean consistent) {
+		ScanRequest scanRequest = new ScanRequest()
+				.withTableName(ACHIEVE_TABLE_NAME)
+				.withProjectionExpression("category, currentProg, maxProg")
+				.withConsistentRead(consistent);
+		
+		return this.parallelScan.<Map<String, CategoryProgress>>run(scanRequest, this.getScanSegments(),
+				() -> new TreeMap<String, CategoryProgress>(),
+				(totals, item) -> addCategoryProgress(totals, item),
+				(left, right) -> CategoryProgress.mergeAll(left, right));
+	}
+	
+	/**
+	 * Adds the progress of a scanned achievement $item to the totals of its category
+	 */
+	private static void addCategoryProgress(Map<String, CategoryProgress> totals, Map<String, AttributeValue> item) {
+		String category = null;
+		int currentProg = 0;
+		int maxProg = 0;
+		for(Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+			String attributeName = attribute.getKey();
+			switch (attributeName){
+				case "category" :
+					category = attribute.getValue().getS();
+					break;
+				case "currentProg":
+					currentProg = Integer.parseInt(attribute.getValue().getN());
+					break;
+				case "maxProg":
+					maxProg = Integer.parseInt(attribute.getValue().getN());
+					break;
+				default:
+					System.err.println("[WARNING] Somehow managed to retrieve the attribute: " + attributeName + " when it wasn't being looked for.");
+			}
+		}
+		CategoryProgress progress = totals.get(category);
+		if(progress == null) {
+			progress = new CategoryProgress();
+			totals.put(category, progress);
+		}
+		progress.add(currentProg, maxProg);
+	}
+	
+	/**
+	 * Gets how many segments to scan the achievement table with. DescribeTable only refreshes the table size every few hours,
+	 * so the answer is cached for SEGMENT_REFRESH_MILLIS.
+	 */
+	public int getScanSegments() {
+		long now = System.currentTimeMillis();
+		if(this.scanSegments == 0 || now - this.scanSegmentsCheckedAt > SEGMENT_REFRESH_MILLIS) {
+			try {
+				this.scanSegments = this.parallelScan.chooseSegments(ACHIEVE_TABLE_NAME);
+			} catch (Exception e) {
+				System.err.println("[WARNING] Could not describe achievement table, scanning with a single segment.");
+				System.err.println(e.getMessage());
+				this.scanSegments = 1;
+			}
+			this.scanSegmentsCheckedAt = now;
+		}
+		return this.scanSegments;
+	}
+	
+	/**
+	 * Gets all of the achievements from the AWS DynamoDB for a given category within the AWS DynamoDB
+	 * @param category
+	 * 	Category to get the achievements from
+	 * @return
+	 * 	Map of achievement names to the achievement data
+	 */	
+	@Override
+	public Map<String, Achievement> getAchievements(String category) {
+		this.flushWrites();
+		final Map<String, Achievement> achievements = new TreeMap<String, Achievement>();
+		try {
+			this.queryCategory(category, "title, description, currentProg, maxProg, imageURL").forEach(new ItemPager.Visitor() {
+				@Override
+				public boolean visit(Map<String, AttributeValue> item) {
+					Achievement achievement = new Achievement();
+					String title = null;
+					for(Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+						String attributeName = attribute.getKey();
+						switch (attributeName){
+							case "title" :
+								title = attribute.getValue().getS();
+								break;
+							case "description" :
+								achievement.description = attribute.getValue().getS();
+								break;
+							case "currentProg":
+								achievement.currentProg = Integer.parseInt(attribute.getValue().getN());
+								break;
+							case "maxProg":
+								achievement.maxProg = Integer.parseInt(attribute.getValue().getN());
+								break;
+							case "imageURL":
+								achievement.imageURL = attribute.getValue().getS();
+								break;
+							default:
+								System.err.println("[WARNING] Somehow managed to retrieve the attribute: " + attributeName + " when it wasn't being looked for.");
+						}
+					}
+					achievements.put(title, achievement);
+					return true;
+				}
+			});
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not get achievements from database.");
+			System.err.println(e.getMessage());
+		}
+		
+		return achievements;
+	}
+	
+	/**
+	 * Creates a lazy pager over every achievement without an image within the AWS DynamoDB.
+	 * This is a query on the sparse needsImage index, so it only reads the achievements still waiting for an image
+	 * (tables without an active needsImage index fall back to a filtered scan).
+	 * @return
+	 * 	Pager over the title and category of each achievement, using the page size from the local properties
+	 */
+	public ItemPager queryNeedsImage() {
+		Map<String, AttributeValue> expressionAttributeValues = new TreeMap<String, AttributeValue>();
+		
+		if(!this.isIndexActive(NEEDS_IMAGE_INDEX_NAME)) {
+			System.err.println("[WARNING] Needs image index is not active, scanning for achievements without an image.");
+			expressionAttributeValues.put(":imageURL", new AttributeValue().withS(MISSING_IMAGE_TEXT));
+			return this.scanAchievements("title, category", "imageURL = :imageURL", expressionAttributeValues);
+		}
+		
+		expressionAttributeValues.put(":needsImage", new AttributeValue().withS(NEEDS_IMAGE));
+		QueryRequest queryRequest = new QueryRequest()
+				.withTableName(ACHIEVE_TABLE_NAME)
+				.withIndexName(NEEDS_IMAGE_INDEX_NAME)
+				.withKeyConditionExpression("needsImage = :needsImage")
+				.withProjectionExpression("title, category")
+				.withExpressionAttributeValues(expressionAttributeValues);
+		
+		return ItemPager.query(this.awsDbClient, queryRequest).withPageSize(this.scanPageSize);
+	}
+	
+	/**
+	 * Gets all achievements without an image within the AWS DynamoDB
+	 * @return
+	 * 	A set of achievement pairs (title of achievement, and title of category)
+	 */
+	@Override
+	public Set<AchievementPair> getNoImageAchievements() {
+		this.flushWrites();
+		final Set<AchievementPair> achievements = new HashSet<AchievementPair>();
+		try {
+			this.queryNeedsImage().forEach(new ItemPager.Visitor() {
+				@Override
+				public boolean visit(Map<String, AttributeValue> item) {
+					AchievementPair achievement = new AchievementPair();
+					for(Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+						String attributeName = attribute.getKey();
+						switch (attributeName) {
+							case "title" :
+								achievement.title = attribute.getValue().getS();
+								break;
+							case "category" :
+								achievement.category = attribute.getValue().getS();
+								break;
+							default:
+								System.err.println("[WARNING] Somehow managed to retrieve the attribute: " + attributeName + " when it wasn't being looked for.");
+						}
+					}
+					achievements.add(achievement);
+					return true;
+				}
+			});
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not get achievements from database.");
+			System.err.println(e.getMessage());
+		}
+		
+		return achievements;
+	}
+
+	/**
+	 * Removes an $achievement from a given $category within the AWS DynamoDB
+	 * @param achievement
+	 * 	The name of the achievement to remove
+	 * @param category
+	 * 	The name of the category to remove the achievement from
+	 */
+	@Override
+	public void deleteAchievement(String achievement, String category) {
+		this.flushWrites();
+		Table achieveTable = this.awsDb.getTable(ACHIEVE_TABLE_NAME);
+		DeleteItemSpec deleteItemSpec = new DeleteItemSpec()
+				.withPrimaryKey(new PrimaryKey("title", achievement, "category", category))
+				.withReturnValues(ReturnValue.ALL_OLD);
+		
+		try {
+			Item deleted = achieveTable.deleteItem(deleteItemSpec).getItem();
+			if(deleted != null) this.addToCategorySummary(category, -deleted.getInt("currentProg"), -deleted.getInt("maxProg"), -1);
+			System.err.println("[SUCCESS] Successfully deleted achievement: " + achievement);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not delete achievement: " + achievement);
+			System.err.println(e.getMessage());
+		}
+		
+	}
+	
+	/**
+	 * Removes all achievements in a given $category within the AWS DynamoDB.
+	 * Keys are streamed from the category index into BatchWriteItem deletes of 25, with several batches in flight at once.
+	 * @param category
+	 * 	The name of the category to remove all achievements from
+	 * @return
+	 * 	How many achievements were and were not deleted
+	 */
+	@Override
+	public BatchWriter.Result deleteCategory(String category) {
+		this.flushWrites();
+		BatchWriter.Result result = new BatchWriter.Result(0, 0);
+		
+		try {
+			BatchWriter writer = new BatchWriter(this.awsDbClient, ACHIEVE_TABLE_NAME, this.writePool, this.batchWritesInFlight);
+			for(Map<String, AttributeValue> item : this.queryCategory(category, "title")) {
+				Map<String, AttributeValue> key = new TreeMap<String, AttributeValue>();
+				key.put("title", item.get("title"));
+				key.put("category", new AttributeValue().withS(category));
+				writer.add(new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
+			}
+			result = writer.finish();
+			
+			if(result.failed == 0) {
+				this.awsDb.getTable(CATEGORY_TABLE_NAME).deleteItem("category", category);
+				System.err.println("[SUCCESS] Successfully deleted category: " + category + " (" + result.succeeded + " achievements)");
+			} else {
+				//The category summary is left for the reconciler to correct
+				System.err.println("[ERROR] Could not delete " + result.failed + " of " + (result.succeeded + result.failed) + " achievements within the category: " + category);
+			}
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not delete category: " + category);
+			System.err.println(e.getMessage());
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Uploads to Google Drive and create shareable link to image. The image will be named $category_$achieveTitle
+	 * @param achieveTitle
+	 * 	The name of the achievement linked with this image
+	 * @param category
+	 * 	The name of the category linked with this image
+	 * @param image
+	 * 	The image to upload
+	 * @return
+	 */
+	@Override
+	public String createImageURL(String achieveTitle, String category, File image) {
+		
+		String imageURL = null;
+		
+		try {
+			/*
+			 * Upload image to Google Drive
+			 */
+			com.google.api.services.drive.model.File fileMetadata = new com.google.api.services.drive.model.File();
+			fileMetadata.setName(category + "_" + achieveTitle);
+			FileContent mediaContent = new FileContent("image/jpeg", image);
+			Drive drive = this.drive.get();
+			com.google.api.services.drive.model.File file = drive.files().create(fileMetadata, mediaContent)
+			    .setFields("id, webContentLink")
+			    .execute();
+			
+			/*
+			 * Get share-able link
+			 */
+			Permission linkPermission = new Permission()
+					.setType("anyone")
+					.setRole("reader");
+			drive.permissions().create(file.getId(), linkPermission).execute();
+			imageURL = file.getWebContentLink();
+		} catch (Exception e) {
+			System.err.println("[ERROR] Failed to upload image to Google Drive.");
+			System.err.println(e.getMessage());
+		}
+		
+		return imageURL;
+	}
+	
+	/**
+	 * Checks if a given achievement title, category is unique within the AWS DynamoDB
+	 * @param title
+	 * 	The title of the achievement
+	 * @param category
+	 * 	The title of the category
+	 * @return
+	 * 	True iff there is no achievement with the title and category given within the AWS DynamoDB
+	 */
+	@Override
+	public boolean isUnique(String title, String category) {
+		boolean isUnique = false;
+		try {
+			Table table = this.awsDb.getTable(ACHIEVE_TABLE_NAME);
+			Item item = table.getItem("title", title, "category", category);
+			
+			if(item == null) isUnique = true;
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not check uniqueness from database.");
+			System.err.println(e.getMessage());
+		}
+		
+		return isUnique;
+	}
+
+	/**
+	 * Creates an achievement within the AWS DynamoDB with $title, $category, $description, $maxProg, $imageURL, and a currentProg of 0,
+	 * using a put conditional on the achievement not existing yet.
+	 * This is the same with write-behind on: a batched put cannot be conditional, so a queued create could overwrite an achievement made
+	 * by another client in the meantime.
+	 * @requires
+	 * 	$title and $category cannot be null.
+	 * @param title
+	 * 	Title to give achievement
+	 * @param category
+	 * 	Category to give achievement
+	 * @param description
+	 * 	Description of achievement
+	 * @param maxProg
+	 * 	Max progress of achievement
+	 * @param imageURL
+	 * 	Image URL of achievement
+	 * @return
+	 * 	Whether the achievement was created
+	 */
+	@Override
+	public CreateResult createAchievement(String title, String category, String description, int maxProg, String imageURL) {
+		if(imageURL == null) imageURL = MISSING_IMAGE_TEXT;			//iff imageURL is missing, it is replaced with the missing image text
+		try {
+			Table table = this.awsDb.getTable(ACHIEVE_TABLE_NAME);
+			Item item = new Item().withPrimaryKey("title", title, "category", category).with("description", description).with("maxProg", maxProg).with("currentProg", 0).with("imageURL", imageURL);
+			if(imageURL.equals(MISSING_IMAGE_TEXT)) item.withString("needsImage", NEEDS_IMAGE);	//Only achievements without an image are in the needsImage index
+			
+			PutItemSpec putItemSpec = new PutItemSpec()
+					.withItem(item)
+					.withConditionExpression("attribute_not_exists(title)");
+			table.putItem(putItemSpec);
+			System.err.println("[SUCCESS] Successfully added achievement to database.");
+			
+			this.addToCategorySummary(category, 0, maxProg, 1);
+			return CreateResult.CREATED;
+		} catch (ConditionalCheckFailedException e) {
+			System.err.println("[ERROR] Achievement already exists: " + category + ": " + title);
+			return CreateResult.ALREADY_EXISTS;
+		} catch (Exception e) {
+			System.err.println("[ERROR] Failed to put achievement data into database.");
+			System.err.println(e.getMessage());
+			return CreateResult.FAILED;
+		}
+	}
+
+	/**
+	 * Builds the low-level item of an achievement (imageURL must not be null)
+	 */
+	static Map<String, AttributeValue> achievementItem(String title, String category, String description, int maxProg, int currentProg, String imageURL) {
+		Map<String, AttributeValue> item = new TreeMap<String, AttributeValue>();
+		item.put("title", new AttributeValue().withS(title));
+		item.put("category", new AttributeValue().withS(category));
+		if(description != null) item.put("description", new AttributeValue().withS(description));
+		item.put("maxProg", new AttributeValue().withN(Integer.toString(maxProg)));
+		item.put("currentProg", new AttributeValue().withN(Integer.toString(currentProg)));
+		item.put("imageURL", new AttributeValue().withS(imageURL));
+		if(imageURL.equals(MISSING_IMAGE_TEXT)) item.put("needsImage", new AttributeValue().withS(NEEDS_IMAGE));
+		return item;
+	}
+	
+	/**
+	 * Finds which of the achievements keyed by $keys ([title, category] each, at most MAX_BATCH_GET_SIZE) are already in the AWS DynamoDB,
+	 * with a single consistent BatchGetItem that only reads the keys (unprocessed keys are asked for again with exponential backoff)
+	 * @return
+	 * 	The keys of the achievements that exist
+	 * @throws Exception
+	 * 	If the lookup failed or some keys were still unprocessed after every attempt
+	 */
+	public Set<List<String>> existingAchievements(Collection<List<String>> keys) throws Exception {
+		List<Map<String, AttributeValue>> requested = new ArrayList<Map<String, AttributeValue>>(keys.size());
+		for(List<String> key : keys) {
+			Map<String, AttributeValue> attributes = new TreeMap<String, AttributeValue>();
+			attributes.put("title", new AttributeValue().withS(key.get(0)));
+			attributes.put("category", new AttributeValue().withS(key.get(1)));
+			requested.add(attributes);
+		}
+		
+		Set<List<String>> existing = new HashSet<List<String>>();
+		KeysAndAttributes remaining = new KeysAndAttributes().withKeys(requested).withProjectionExpression("title, category").withConsistentRead(true);
+		for(int attempt = 0; remaining != null && remaining.getKeys() != null && !remaining.getKeys().isEmpty(); attempt++) {
+			if(attempt == MAX_BATCH_GET_ATTEMPTS) throw new Exception(remaining.getKeys().size() + " keys were still unprocessed.");
+			if(attempt > 0) Thread.sleep(BATCH_GET_BACKOFF_MILLIS << (attempt - 1));
+			
+			BatchGetItemResult result = this.awsDbClient.batchGetItem(new BatchGetItemRequest().withRequestItems(Collections.singletonMap(ACHIEVE_TABLE_NAME, remaining)));
+			List<Map<String, AttributeValue>> items = (result.getResponses() == null) ? null : result.getResponses().get(ACHIEVE_TABLE_NAME);
+			if(items != null) {
+				for(Map<String, AttributeValue> item : items) {
+					existing.add(Arrays.asList(item.get("title").getS(), item.get("category").getS()));
+				}
+			}
+			remaining = (result.getUnprocessedKeys() == null) ? null : result.getUnprocessedKeys().get(ACHIEVE_TABLE_NAME);
+		}
+		return existing;
+	}
+	
+	/**
+	 * Creates a writer that pipelines puts of whole achievements into the AWS DynamoDB (see BatchWriter).
+	 * Any queued writes are sent first. Category summaries are not updated by the writer, so reconcile them once it is finished.
+	 */
+	public BatchWriter createAchievementWriter() {
+		this.flushWrites();
+		return new BatchWriter(this.awsDbClient, ACHIEVE_TABLE_NAME, this.writePool, this.batchWritesInFlight);
+	}
+	
+	/**
+	 * Adds $delta to the current progress of the achievement with $title, $category within the AWS DynamoDB.
+	 * Increments of the same achievement made within the progress flush interval are combined into a single update.
+	 * @param title
+	 * 	Title of the achievement to increment
+	 * @param category
+	 * 	Category of the achievement to increment
+	 * @param delta
+	 * 	Amount to add to the current progress
+	 * @return
+	 * 	The progress before and after the increment, or null if there is no such achievement (or it could not be updated)
+	 */
+	@Override
+	public Progress incrementProgress(String title, String category, int delta) {
+		if(delta <= 0) {
+			System.err.println("[ERROR] Progress can only be incremented by a positive amount.");
+			return null;
+		}
+		
+		ProgressCoalescer coalescer = this.progressCoalescer;
+		if(coalescer == null) return this.sendIncrement(title, category, delta);
+		return coalescer.increment(title, category, delta).join();
+	}
+	
+	/**
+	 * Adds $delta to the current progress of an achievement, clamping it to the achievement's max progress.
+	 * The ADD is conditional on the result staying within maxProg, and if it would not, progress is set to maxProg instead (also
+	 * conditionally), so no write ever stores progress above maxProg. maxProg never changes, so it is read once and then cached; the
+	 * updates are also conditional on it, so an achievement deleted and made again with a different maxProg is read again.
+	 * @return
+	 * 	The progress before and after the increment, or null if there is no such achievement (or it could not be updated)
+	 */
+	private Progress sendIncrement(String title, String category, int delta) {
+		try {
+			Table table = this.awsDb.getTable(ACHIEVE_TABLE_NAME);
+			List<String> key = Arrays.asList(title, category);
+			
+			for(int attempt = 0; attempt < 2; attempt++) {
+				Integer maxProg;
+				synchronized(this.maxProgs) {
+					maxProg = this.maxProgs.get(key);
+				}
+				Item stored = null;
+				if(maxProg == null) {
+					stored = this.readProgress(table, title, category);
+					if(stored == null) break;
+					maxProg = stored.getInt("maxProg");
+				}
+				
+				Progress progress = new Progress();
+				progress.maxProg = maxProg;
+				try {
+					/*
+					 * Add $delta only if it keeps progress within maxProg
+					 */
+					Item updated = table.updateItem(new UpdateItemSpec().withPrimaryKey("title", title, "category", category)
+							.withUpdateExpression("add currentProg :d")
+							.withConditionExpression("attribute_exists(title) AND maxProg = :max AND currentProg <= :limit")
+							.withValueMap(new ValueMap().withInt(":d", delta).withInt(":max", maxProg).withLong(":limit", (long) maxProg - delta))
+							.withReturnValues(ReturnValue.ALL_NEW)).getItem();
+					progress.currentProg = updated.getInt("currentProg");
+					progress.previousProg = progress.currentProg - delta;
+				} catch (ConditionalCheckFailedException overshoot) {
+					try {
+						/*
+						 * Otherwise progress reaches maxProg, unless it is there already
+						 */
+						Item old = table.updateItem(new UpdateItemSpec().withPrimaryKey("title", title, "category", category)
+								.withUpdateExpression("set currentProg = maxProg")
+								.withConditionExpression("attribute_exists(title) AND maxProg = :max AND currentProg < maxProg")
+								.withValueMap(new ValueMap().withInt(":max", maxProg))
+								.withReturnValues(ReturnValue.ALL_OLD)).getItem();
+						progress.previousProg = old.getInt("currentProg");
+						progress.currentProg = maxProg;
+					} catch (ConditionalCheckFailedException unchanged) {
+						stored = this.readProgress(table, title, category);
+						if(stored == null) break;
+						if(stored.getInt("maxProg") != maxProg) {
+							synchronized(this.maxProgs) {
+								this.maxProgs.remove(key);
+							}
+							continue;
+						}
+						progress.previousProg = stored.getInt("currentProg");
+						progress.currentProg = progress.previousProg;
+					}
+				}
+				synchronized(this.maxProgs) {
+					this.maxProgs.put(key, maxProg);
+				}
+				
+				progress.unlocked = progress.previousProg < maxProg && progress.currentProg >= maxProg;
+				if(progress.currentProg != progress.previousProg) this.addToCategorySummary(category, progress.currentProg - progress.previousProg, 0, 0);
+				return progress;
+			}
+			System.err.println("[ERROR] No achievement to increment the progress of: " + category + ": " + title);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not update achievement progress.");
+			System.err.println(e.getMessage());
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * @return
+	 * 	The stored progress and max progress of the achievement with $title, $category (read consistently), or null if there is none
+	 */
+	private Item readProgress(Table table, String title, String category) {
+		return table.getItem(new GetItemSpec().withPrimaryKey("title", title, "category", category)
+				.withProjectionExpression("currentProg, maxProg")
+				.withConsistentRead(true));
+	}
+
+	/**
+	 * Sets the imageURL of the achievement with $title, $category to $imageURL within the AWS DynamoDB
+	 * @param title
+	 * 	Title of the achievement to change the imageURL of
+	 * @param category
+	 * 	Category of the achievement to change the imageURL of
+	 * @param imageURL
+	 * 	The new image URL to give to the achievement
+	 */
+	@Override
+	public void changeAchievementImage(String title, String category, String imageURL) {
+		if(this.writeQueue != null) {
+			boolean needsImage = imageURL == null || imageURL.equals(MISSING_IMAGE_TEXT);
+			this.writeQueue.setImage(title, category, needsImage ? MISSING_IMAGE_TEXT : imageURL, needsImage);
+			System.err.println("[SUCCESS] Queued change of " + category + ": " + title + "'s image.");
+			return;
+		}
+		
+		try {
+			Table table = this.awsDb.getTable(ACHIEVE_TABLE_NAME);
+			
+	        UpdateItemSpec updateItemSpec = new UpdateItemSpec().withPrimaryKey("title", title, "category", category)
+	                .withReturnValues(ReturnValue.UPDATED_NEW);
+	        if(imageURL == null || imageURL.equals(MISSING_IMAGE_TEXT)) {
+	        	updateItemSpec.withUpdateExpression("set imageURL = :i, needsImage = :n")
+	        			.withValueMap(new ValueMap().withString(":i", MISSING_IMAGE_TEXT).withString(":n", NEEDS_IMAGE));
+	        } else {
+	        	//Achievements leave the needsImage index once they have an image
+	        	updateItemSpec.withUpdateExpression("set imageURL = :i remove needsImage")
+	        			.withValueMap(new ValueMap().withString(":i", imageURL));
+	        }
+	        
+	        table.updateItem(updateItemSpec);
+	        System.err.println("[SUCCESS] Successfully changed " + category + ": " + title + "'s image.");
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not update achievement image.");
+			System.err.println(e.getMessage());
+		}
+		
+	}
+	
+
+}
@@ -0,0 +1,249 @@
+/**
+ * Loads achievement images in the background so a window can be shown before its images have arrived.
+ *
+ * Each window makes its own loader and asks it for the images of its tiles. Images are downloaded and decoded (and scaled to their
+ * tile size) by a bounded pool of workers, and each one is handed to the window on the event dispatch thread as it arrives. A worker
+ * always takes a request for a visible tile before the others, so the tiles in view fill in first however long the list is.
+ * Closing the loader (when its window is disposed) drops every request that has not started and stops any callbacks.
+ *
+ * Loaded images are kept in a small cache shared by every loader, so reopening a window shows its images straight away.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+
+public class ImageLoader {
+
+	/**
+	 * An image asked for by a tile
+	 */
+	public final class Request {
+		private final String url;
+		private final int size;
+		private final Consumer<ImageIcon> onLoaded;
+		private boolean visible = false;
+
+		private Request(String url, int size, Consumer<ImageIcon> onLoaded) {
+			this.url = url;
+			this.size = size;
+			this.onLoaded = onLoaded;
+		}
+
+		/**
+		 * Sets whether the tile is in view (visible tiles are loaded first)
+		 */
+		public void setVisible(boolean visible) {
+			synchronized(ImageLoader.this.pending) {
+				this.visible = visible;
+			}
+		}
+	}
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 10000, READ_TIMEOUT_MILLIS = 30000;
+	private static final int IDLE_SECONDS = 30;				//How long an idle worker is kept
+	private static final Color PLACEHOLDER_COLOR = new Color(0, 0, 0, 24);
+
+	private static final AtomicInteger LOADERS = new AtomicInteger();
+	private static final Map<String, ImageIcon> CACHE = new LinkedHashMap<String, ImageIcon>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ImageIcon> eldest) {
+			return this.size() > cacheSize;
+		}
+	};
+	private static int cacheSize = 0;
+
+	private final ThreadPoolExecutor workers;
+	private final Set<Request> pending;						//Requests not yet taken by a worker, in the order they were made
+	private volatile boolean closed = false;
+
+	/**
+	 * @param settings
+	 * 	Settings holding the number of workers and the size of the shared cache
+	 */
+	public ImageLoader(AchieveSettings settings) {
+		synchronized(CACHE) {
+			cacheSize = settings.getImageCacheSize();
+		}
+		this.pending = new LinkedHashSet<Request>();
+
+		final String name = "images-" + LOADERS.incrementAndGet() + "-";
+		final AtomicInteger count = new AtomicInteger();
+		int threads = settings.getImageLoadThreads();
+		this.workers = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), runnable -> {
+			Thread thread = new Thread(runnable, name + count.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		this.workers.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Loads the image at $url scaled to $size x $size
+	 * @param onLoaded
+	 * 	Given the image (or null if it could not be loaded) on the event dispatch thread, straight away if the image is cached
+	 * @return
+	 * 	The request, to mark when its tile is in view
+	 */
+	public Request load(String url, int size, Consumer<ImageIcon> onLoaded) {
+		Request request = new Request(url, size, onLoaded);
+		ImageIcon icon = cached(url, size);
+		if(icon != null) {
+			onLoaded.accept(icon);
+			return request;
+		}
+
+		synchronized(this.pending) {
+			if(this.closed) return request;
+			this.pending.add(request);
+		}
+		this.workers.execute(this::loadNext);
+		return request;
+	}
+
+	/**
+	 * Drops every request that has not been loaded yet, no more images are handed back after this
+	 */
+	public void close() {
+		synchronized(this.pending) {
+			this.closed = true;
+			this.pending.clear();
+		}
+		this.workers.shutdownNow();
+	}
+
+	/**
+	 * Loads the local image file at $address scaled to $size x $size, on the calling thread (these are small and used by many tiles)
+	 * @return
+	 * 	The image, or null if it could not be loaded
+	 */
+	public static ImageIcon loadFile(String address, int size) {
+		String key = "file:" + address;
+		ImageIcon icon = cached(key, size);
+		if(icon != null) return icon;
+		try {
+			icon = new ImageIcon(scale(ImageIO.read(new File(address)), size));
+			cache(key, size, icon);
+		} catch (Exception e) {
+			System.err.println("[WARNING] Could not load image: " + address);
+			System.err.println(e.getMessage());
+		}
+		return icon;
+	}
+
+	/**
+	 * @return
+	 * 	A blank $size x $size image to show until a tile's image arrives
+	 */
+	public static ImageIcon placeholder(int size) {
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(PLACEHOLDER_COLOR);
+		graphics.fillRect(0, 0, size, size);
+		graphics.dispose();
+		return new ImageIcon(image);
+	}
+
+	/**
+	 * Loads the first visible pending request, or the oldest if none are visible (on a worker)
+	 */
+	private void loadNext() {
+		Request request = null;
+		synchronized(this.pending) {
+			for(Iterator<Request> iterator = this.pending.iterator(); iterator.hasNext();) {
+				Request next = iterator.next();
+				if(request == null || next.visible) {
+					request = next;
+					if(next.visible) break;
+				}
+			}
+			if(request == null) return;
+			this.pending.remove(request);
+		}
+
+		ImageIcon icon = cached(request.url, request.size);
+		if(icon == null) {
+			try {
+				icon = new ImageIcon(scale(read(request.url), request.size));
+				cache(request.url, request.size, icon);
+			} catch (Exception e) {
+				if(this.closed) return;
+				System.err.println("[WARNING] Could not load image: " + request.url);
+				System.err.println(e.getMessage());
+			}
+		}
+
+		final Request loaded = request;
+		final ImageIcon result = icon;
+		SwingUtilities.invokeLater(() -> {
+			if(!this.closed) loaded.onLoaded.accept(result);
+		});
+	}
+
+	private static BufferedImage read(String url) throws IOException {
+		URLConnection connection = new URL(url).openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+		connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+		try (InputStream input = connection.getInputStream()) {
+			return ImageIO.read(input);
+		}
+	}
+
+	/**
+	 * Scales $image to $size x $size now, so the event dispatch thread only has to paint it
+	 */
+	private static BufferedImage scale(BufferedImage image, int size) throws IOException {
+		if(image == null) throw new IOException("Not a supported image format.");
+		BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = scaled.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		graphics.drawImage(image, 0, 0, size, size, null);
+		graphics.dispose();
+		return scaled;
+	}
+
+	private static ImageIcon cached(String key, int size) {
+		synchronized(CACHE) {
+			return CACHE.get(size + ":" + key);
+		}
+	}
+
+	private static void cache(String key, int size, ImageIcon icon) {
+		synchronized(CACHE) {
+			if(cacheSize > 0) CACHE.put(size + ":" + key, icon);
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/**
+ * Lazily walks every page of a DynamoDB request, following LastEvaluatedKey until the results are exhausted or the item limit is reached.
+ * Only the current page is ever held in memory, so callers can stream tables of any size and stop whenever they want.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+public class ItemPager implements Iterable<Map<String, AttributeValue>> {
+
+	/**
+	 * Receives every item of a paged request in order.
+	 */
+	public interface Visitor {
+		/**
+		 * @param item
+		 * 	The next item of the results
+		 * @return
+		 * 	True to keep going, false to stop paging early
+		 */
+		boolean visit(Map<String, AttributeValue> item);
+	}
+
+	/**
+	 * Receives every page of a paged request in order.
+	 */
+	public interface PageVisitor {
+		/**
+		 * @param items
+		 * 	The items of the next page (may be empty when a filter drops everything)
+		 * @param lastEvaluatedKey
+		 * 	Key to start the following page at, or null if this is the last page
+		 * @return
+		 * 	True to keep going, false to stop paging early
+		 */
+		boolean visit(List<Map<String, AttributeValue>> items, Map<String, AttributeValue> lastEvaluatedKey);
+	}
+
+	/**
+	 * Fetches one page of results starting at $startKey (null for the first page) holding at most $pageSize items (0 for no limit)
+	 */
+	private interface PageSource {
+		Page fetch(Map<String, AttributeValue> startKey, int pageSize);
+	}
+
+	private static class Page {
+		private final List<Map<String, AttributeValue>> items;
+		private final Map<String, AttributeValue> lastEvaluatedKey;
+
+		private Page(List<Map<String, AttributeValue>> items, Map<String, AttributeValue> lastEvaluatedKey) {
+			this.items = (items == null) ? Collections.<Map<String, AttributeValue>>emptyList() : items;
+			this.lastEvaluatedKey = (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) ? null : lastEvaluatedKey;
+		}
+	}
+
+	private final PageSource source;
+	private int pageSize;
+	private int limit;
+	private Map<String, AttributeValue> startKey;
+
+	private ItemPager(PageSource source) {
+		this.source = source;
+		this.pageSize = 0;
+		this.limit = 0;
+		this.startKey = null;
+	}
+
+	/**
+	 * Creates a pager over every page of $request. $request itself is never modified.
+	 * @param client
+	 * 	DynamoDB client to issue the scans with
+	 * @param request
+	 * 	The scan to page through
+	 * @return
+	 * 	A pager that has not made any requests yet
+	 */
+	public static ItemPager scan(final AmazonDynamoDB client, final ScanRequest request) {
+		return new ItemPager(new PageSource() {
+			@Override
+			public Page fetch(Map<String, AttributeValue> startKey, int pageSize) {
+				ScanRequest pageRequest = request.clone()
+						.withExclusiveStartKey(startKey)
+						.withLimit(pageSize > 0 ? pageSize : null);
+				ScanResult result = client.scan(pageRequest);
+				return new Page(result.getItems(), result.getLastEvaluatedKey());
+			}
+		});
+	}
+
+	/**
+	 * Creates a pager over every page of $request. $request itself is never modified.
+	 * @param client
+	 * 	DynamoDB client to issue the queries with
+	 * @param request
+	 * 	The query to page through
+	 * @return
+	 * 	A pager that has not made any requests yet
+	 */
+	public static ItemPager query(final AmazonDynamoDB client, final QueryRequest request) {
+		return new ItemPager(new PageSource() {
+			@Override
+			public Page fetch(Map<String, AttributeValue> startKey, int pageSize) {
+				QueryRequest pageRequest = request.clone()
+						.withExclusiveStartKey(startKey)
+						.withLimit(pageSize > 0 ? pageSize : null);
+				QueryResult result = client.query(pageRequest);
+				return new Page(result.getItems(), result.getLastEvaluatedKey());
+			}
+		});
+	}
+
+	/**
+	 * Sets the maximum number of items DynamoDB evaluates per page (0 lets DynamoDB fill a full 1 MB page)
+	 */
+	public ItemPager withPageSize(int pageSize) {
+		this.pageSize = Math.max(0, pageSize);
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of items returned over all pages (0 for every item)
+	 */
+	public ItemPager withLimit(int limit) {
+		this.limit = Math.max(0, limit);
+		return this;
+	}
+
+	/**
+	 * Sets the key to start the first page at, such as the LastEvaluatedKey of an earlier, interrupted request (null starts at the beginning)
+	 */
+	public ItemPager withStartKey(Map<String, AttributeValue> startKey) {
+		this.startKey = (startKey == null || startKey.isEmpty()) ? null : startKey;
+		return this;
+	}
+
+	/**
+	 * Passes every page to $visitor until the results run out or $visitor asks to stop (the item limit is not used).
+	 * Only the page being visited is held in memory.
+	 * @param visitor
+	 * 	Receives each page with the key the next page starts at
+	 * @return
+	 * 	The number of pages visited
+	 */
+	public int forEachPage(PageVisitor visitor) {
+		int visited = 0;
+		Map<String, AttributeValue> nextKey = this.startKey;
+		do {
+			Page page = this.source.fetch(nextKey, this.pageSize);
+			nextKey = page.lastEvaluatedKey;
+			visited++;
+			if(!visitor.visit(page.items, nextKey)) break;
+		} while(nextKey != null);
+		return visited;
+	}
+
+	/**
+	 * Passes every item to $visitor until the results run out, the limit is reached, or $visitor asks to stop.
+	 * @param visitor
+	 * 	Receives each item
+	 * @return
+	 * 	The number of items visited
+	 */
+	public int forEach(Visitor visitor) {
+		int visited = 0;
+		for(Map<String, AttributeValue> item : this) {
+			visited++;
+			if(!visitor.visit(item)) break;
+		}
+		return visited;
+	}
+
+	@Override
+	public Iterator<Map<String, AttributeValue>> iterator() {
+		return new Iterator<Map<String, AttributeValue>>() {
+			private Iterator<Map<String, AttributeValue>> page = null;
+			private Map<String, AttributeValue> nextKey = startKey;
+			private int returned = 0;
+
+			@Override
+			public boolean hasNext() {
+				if(limit > 0 && this.returned >= limit) return false;
+
+				/*
+				 * Fetch pages until one has items or there are no more pages (pages may be empty when a filter drops everything)
+				 */
+				while(this.page == null || (!this.page.hasNext() && this.nextKey != null)) {
+					int requestSize = pageSize;
+					if(limit > 0 && (requestSize == 0 || requestSize > limit - this.returned)) requestSize = limit - this.returned;
+
+					Page next = source.fetch(this.nextKey, requestSize);
+					this.page = next.items.iterator();
+					this.nextKey = next.lastEvaluatedKey;
+				}
+				return this.page.hasNext();
+			}
+
+			@Override
+			public Map<String, AttributeValue> next() {
+				if(!this.hasNext()) throw new NoSuchElementException();
+				this.returned++;
+				return this.page.next();
+			}
+		};
+	}
+}
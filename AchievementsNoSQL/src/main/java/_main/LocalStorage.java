@@ -0,0 +1,244 @@
+/**
+ * Stores achievements and images on the local file system through a LocalStore (see LocalStore for the file layout).
+ * Accounts are not available, since local storage is only used by a single person.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+public class LocalStorage implements AchieveStorage {
+
+	private LocalStore store;
+
+	/**
+	 * Constructor for storage that is not opened yet (see connect)
+	 */
+	public LocalStorage() {
+		this.store = null;
+	}
+
+	/**
+	 * Attempts to open the local storage within the local directory of the local properties
+	 */
+	@Override
+	public void connect(AchieveSettings settings) {
+		this.close();
+		try {
+			long start = System.nanoTime();
+			this.store = LocalStore.open(new File(settings.getLocalDirectory()), MISSING_IMAGE_TEXT);
+			System.err.println("[SUCCESS] Opened local storage in " + ((System.nanoTime() - start) / 1000000) + " ms.");
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not open local storage.");
+			System.err.println(e.getMessage());
+		}
+	}
+
+	@Override
+	public void close() {
+		if(this.store != null) this.store.close();
+		this.store = null;
+	}
+
+	@Override
+	public void createDatabase() {
+		System.err.println("[WARNING] Local storage creates its files when it is opened, no database to create.");
+	}
+
+	@Override
+	public void createKey() {
+		System.err.println("[WARNING] Local storage does not use an encryption key.");
+	}
+
+	@Override
+	public CreateResult createAccount(String username, String email, String password, AchieveSettings settings) {
+		System.err.println("[ERROR] Accounts are not available with local storage.");
+		return CreateResult.FAILED;
+	}
+
+	@Override
+	public boolean login(String username, String password, AchieveSettings settings) {
+		System.err.println("[ERROR] Accounts are not available with local storage.");
+		return false;
+	}
+
+	@Override
+	public SessionResult resumeSession(String username, String sessionToken, AchieveSettings settings) {
+		System.err.println("[ERROR] Accounts are not available with local storage.");
+		return SessionResult.REJECTED;
+	}
+
+	@Override
+	public Map<String, Double> getCategories() {
+		Map<String, Double> categories = new TreeMap<String, Double>();
+		try {
+			for(Map.Entry<String, CategoryProgress> category : this.store.getCategorySummaries().entrySet()) {
+				categories.put(category.getKey(), category.getValue().getPercentage());
+			}
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not get categories from local storage.");
+			System.err.println(e.getMessage());
+		}
+
+		return categories;
+	}
+
+	@Override
+	public BatchWriter.Result deleteCategory(String category) {
+		BatchWriter.Result result = new BatchWriter.Result(0, 0);
+		try {
+			result = new BatchWriter.Result(this.store.deleteCategory(category), 0);
+			System.err.println("[SUCCESS] Successfully deleted category: " + category + " (" + result.succeeded + " achievements)");
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not delete category: " + category);
+			System.err.println(e.getMessage());
+		}
+
+		return result;
+	}
+
+	@Override
+	public Map<String, Achievement> getAchievements(String category) {
+		Map<String, Achievement> achievements = new TreeMap<String, Achievement>();
+		try {
+			for(LocalStore.Record record : this.store.getCategory(category)) {
+				Achievement achievement = new Achievement();
+				achievement.description = record.description;
+				achievement.currentProg = record.currentProg;
+				achievement.maxProg = record.maxProg;
+				achievement.imageURL = record.imageURL;
+				achievements.put(record.title, achievement);
+			}
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not get achievements from local storage.");
+			System.err.println(e.getMessage());
+		}
+
+		return achievements;
+	}
+
+	@Override
+	public Set<AchievementPair> getNoImageAchievements() {
+		Set<AchievementPair> achievements = new HashSet<AchievementPair>();
+		try {
+			for(LocalStore.Key key : this.store.getMissingImage()) {
+				AchievementPair achievement = new AchievementPair();
+				achievement.title = key.title;
+				achievement.category = key.category;
+				achievements.add(achievement);
+			}
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not get achievements from local storage.");
+			System.err.println(e.getMessage());
+		}
+
+		return achievements;
+	}
+
+	@Override
+	public boolean isUnique(String title, String category) {
+		boolean isUnique = false;
+		try {
+			isUnique = this.store.get(title, category) == null;
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not check uniqueness from local storage.");
+			System.err.println(e.getMessage());
+		}
+
+		return isUnique;
+	}
+
+	@Override
+	public CreateResult createAchievement(String title, String category, String description, int maxProg, String imageURL) {
+		LocalStore.Record record = new LocalStore.Record();
+		record.title = title;
+		record.category = category;
+		record.description = description;
+		record.maxProg = maxProg;
+		record.imageURL = (imageURL == null) ? MISSING_IMAGE_TEXT : imageURL;	//iff imageURL is missing, it is replaced with the missing image text
+
+		try {
+			if(!this.store.putIfAbsent(record)) {
+				System.err.println("[ERROR] Achievement already exists: " + category + ": " + title);
+				return CreateResult.ALREADY_EXISTS;
+			}
+			System.err.println("[SUCCESS] Successfully added achievement to local storage.");
+			return CreateResult.CREATED;
+		} catch (Exception e) {
+			System.err.println("[ERROR] Failed to put achievement data into local storage.");
+			System.err.println(e.getMessage());
+			return CreateResult.FAILED;
+		}
+	}
+
+	@Override
+	public Progress incrementProgress(String title, String category, int delta) {
+		if(delta <= 0) {
+			System.err.println("[ERROR] Progress can only be incremented by a positive amount.");
+			return null;
+		}
+
+		Progress progress = null;
+		try {
+			progress = this.store.addProgress(title, category, delta);
+			if(progress == null) System.err.println("[ERROR] No achievement to increment the progress of: " + category + ": " + title);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not update achievement progress.");
+			System.err.println(e.getMessage());
+		}
+
+		return progress;
+	}
+
+	@Override
+	public void changeAchievementImage(String title, String category, String imageURL) {
+		try {
+			if(this.store.setImage(title, category, (imageURL == null) ? MISSING_IMAGE_TEXT : imageURL)) System.err.println("[SUCCESS] Successfully changed " + category + ": " + title + "'s image.");
+			else System.err.println("[ERROR] No achievement to change the image of: " + title);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not update achievement image.");
+			System.err.println(e.getMessage());
+		}
+	}
+
+	@Override
+	public void deleteAchievement(String achievement, String category) {
+		try {
+			if(this.store.delete(achievement, category)) System.err.println("[SUCCESS] Successfully deleted achievement: " + achievement);
+			else System.err.println("[WARNING] No achievement to delete: " + achievement);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not delete achievement: " + achievement);
+			System.err.println(e.getMessage());
+		}
+	}
+
+	/**
+	 * Copies $image into the image directory of the local storage
+	 * @return
+	 * 	A file URL of the copy
+	 */
+	@Override
+	public String createImageURL(String achieveTitle, String category, File image) {
+		String imageURL = null;
+		try {
+			imageURL = this.store.storeImage(achieveTitle, category, image);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Failed to copy image to local storage.");
+			System.err.println(e.getMessage());
+		}
+
+		return imageURL;
+	}
+}
@@ -0,0 +1,838 @@
+/**
+ * Log-structured storage of achievements on the local file system.
+ *
+ * Every create, change and delete is appended to a single record log, so writes never rewrite earlier data.
+ * An in-memory hash index maps each (title, category) to the offset of its latest record, and records are read back with positional reads of the log.
+ * The log is never memory-mapped, so it can always be truncated or replaced (a mapped file cannot be on Windows).
+ * The index is checkpointed to a compact index file, so opening the store only replays the records written since the last checkpoint.
+ * Secondary indexes of the titles within each category, the achievements without an image and the progress totals of every category are kept in memory alongside it.
+ * Records that have been replaced or deleted are dropped by compacting the log in the background.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+public class LocalStore {
+
+	/**
+	 * A stored achievement.
+	 */
+	public static class Record {
+		public String title = null;
+		public String category = null;
+		public String description = null;
+		public int maxProg = 0;
+		public int currentProg = 0;
+		public String imageURL = null;
+	}
+
+	/**
+	 * The (title, category) an achievement is stored under.
+	 */
+	public static final class Key {
+		public final String title;
+		public final String category;
+
+		public Key(String title, String category) {
+			this.title = title;
+			this.category = category;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof Key)) return false;
+			Key key = (Key) other;
+			return this.title.equals(key.title) && this.category.equals(key.category);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * this.title.hashCode() + this.category.hashCode();
+		}
+	}
+
+	/**
+	 * Where the latest record of an achievement is within the log, along with the fields the secondary indexes need
+	 */
+	private static class Entry {
+		private long offset;
+		private final int length;
+		private final int currentProg;
+		private final int maxProg;
+		private final boolean needsImage;
+
+		private Entry(long offset, int length, int currentProg, int maxProg, boolean needsImage) {
+			this.offset = offset;
+			this.length = length;
+			this.currentProg = currentProg;
+			this.maxProg = maxProg;
+			this.needsImage = needsImage;
+		}
+	}
+
+	private static final String LOG_NAME = "achievements.log", INDEX_NAME = "achievements.idx", IMAGE_DIRECTORY = "images";
+	private static final int INDEX_MAGIC = 0x41434858, INDEX_VERSION = 1;		//Identifies an index file written by this class
+	private static final int HEADER_SIZE = 8;									//Payload length and CRC-32 of every record
+	private static final byte PUT = 1, DELETE = 2;
+	private static final long MAINTENANCE_MINUTES = 1;							//Time between checking if the index should be saved or the log compacted
+	private static final long MIN_COMPACT_BYTES = 1024 * 1024;					//Logs with less garbage than this are never compacted
+
+	private final File directory;
+	private final File logFile;
+	private final File indexFile;
+	private final String missingImageText;
+
+	private final ReentrantReadWriteLock lock;
+	private final Object maintenanceLock;
+	private FileChannel channel;
+	private long logLength;
+	private long deadBytes;
+	private long checkpointLength;
+
+	private final Map<Key, Entry> index;
+	private final Map<String, TreeSet<String>> categories;
+	private final Map<String, CategoryProgress> progress;
+	private final Set<Key> missingImage;
+
+	private final ScheduledExecutorService maintenance;
+	private final Thread shutdownHook;
+	private boolean closed;
+
+	private LocalStore(File directory, String missingImageText) {
+		this.directory = directory;
+		this.logFile = new File(directory, LOG_NAME);
+		this.indexFile = new File(directory, INDEX_NAME);
+		this.missingImageText = missingImageText;
+
+		this.lock = new ReentrantReadWriteLock();
+		this.maintenanceLock = new Object();
+		this.logLength = 0;
+		this.deadBytes = 0;
+		this.checkpointLength = -1;
+
+		this.index = new HashMap<Key, Entry>();
+		this.categories = new TreeMap<String, TreeSet<String>>();
+		this.progress = new TreeMap<String, CategoryProgress>();
+		this.missingImage = new HashSet<Key>();
+
+		this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "local-store-maintenance");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.shutdownHook = new Thread(() -> this.close(), "local-store-shutdown");
+		this.closed = false;
+	}
+
+	/**
+	 * Opens (creating if needed) the store within $directory.
+	 * The index file is loaded and any records written after it was saved are replayed; a missing or damaged index file is rebuilt from the whole log.
+	 * @param directory
+	 * 	Directory holding the log, index file and images
+	 * @param missingImageText
+	 * 	Image URL given to achievements that do not have an image
+	 * @return
+	 * 	The open store, which saves its index and compacts its log in the background until it is closed
+	 */
+	public static LocalStore open(File directory, String missingImageText) throws IOException {
+		if(!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Could not create local storage directory: " + directory);
+
+		LocalStore store = new LocalStore(directory, missingImageText);
+		store.channel = FileChannel.open(store.logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		store.logLength = store.channel.size();
+
+		long replayFrom = store.loadIndex();
+		if(replayFrom < 0) {
+			store.clearIndexes();
+			replayFrom = 0;
+		}
+		store.replay(replayFrom);
+
+		store.maintenance.scheduleWithFixedDelay(() -> store.maintain(), MAINTENANCE_MINUTES, MAINTENANCE_MINUTES, TimeUnit.MINUTES);
+		Runtime.getRuntime().addShutdownHook(store.shutdownHook);
+		return store;
+	}
+
+	/**
+	 * Saves the index and stops the background maintenance. The store cannot be used after it is closed.
+	 */
+	public void close() {
+		synchronized(this.maintenanceLock) {
+			if(this.closed) return;
+			this.maintenance.shutdownNow();
+			try {
+				this.checkpoint();
+				this.channel.close();
+			} catch (IOException e) {
+				System.err.println("[WARNING] Could not save the local storage index.");
+				System.err.println(e.getMessage());
+			}
+			this.closed = true;
+		}
+
+		try {
+			Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+		} catch (IllegalStateException e) {
+			//Already shutting down (possibly within the hook itself)
+		}
+	}
+
+	//Reads ------------------------------------------------------------------
+
+	/**
+	 * @return
+	 * 	The achievement stored under ($title, $category), or null if there is none
+	 */
+	public Record get(String title, String category) throws IOException {
+		this.lock.readLock().lock();
+		try {
+			Entry entry = this.index.get(new Key(title, category));
+			return (entry == null) ? null : this.readRecord(entry);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return
+	 * 	Every achievement within $category, ordered by title
+	 */
+	public List<Record> getCategory(String category) throws IOException {
+		this.lock.readLock().lock();
+		try {
+			TreeSet<String> titles = this.categories.get(category);
+			if(titles == null) return Collections.emptyList();
+
+			List<Record> records = new ArrayList<Record>(titles.size());
+			for(String title : titles) {
+				records.add(this.readRecord(this.index.get(new Key(title, category))));
+			}
+			return records;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return
+	 * 	Copy of the progress totals of every category that has achievements
+	 */
+	public Map<String, CategoryProgress> getCategorySummaries() {
+		Map<String, CategoryProgress> summaries = new TreeMap<String, CategoryProgress>();
+		this.lock.readLock().lock();
+		try {
+			for(Map.Entry<String, CategoryProgress> category : this.progress.entrySet()) {
+				CategoryProgress copy = new CategoryProgress();
+				copy.merge(category.getValue());
+				summaries.put(category.getKey(), copy);
+			}
+		} finally {
+			this.lock.readLock().unlock();
+		}
+		return summaries;
+	}
+
+	/**
+	 * @return
+	 * 	The keys of every achievement that does not have an image
+	 */
+	public List<Key> getMissingImage() {
+		this.lock.readLock().lock();
+		try {
+			return new ArrayList<Key>(this.missingImage);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	//Writes -----------------------------------------------------------------
+
+	/**
+	 * Stores $record, replacing any achievement with the same title and category
+	 * @return
+	 * 	True iff an achievement was replaced
+	 */
+	public boolean put(Record record) throws IOException {
+		byte[] bytes = this.encode(PUT, record);
+		this.lock.writeLock().lock();
+		try {
+			long offset = this.append(bytes);
+			return this.applyPut(record, offset, bytes.length);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Stores $record only if there is no achievement with the same title and category
+	 * @return
+	 * 	True iff $record was stored
+	 */
+	public boolean putIfAbsent(Record record) throws IOException {
+		byte[] bytes = this.encode(PUT, record);
+		this.lock.writeLock().lock();
+		try {
+			if(this.index.containsKey(new Key(record.title, record.category))) return false;
+			this.applyPut(record, this.append(bytes), bytes.length);
+			return true;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds $delta to the current progress of the achievement stored under ($title, $category), never going past its max progress
+	 * @return
+	 * 	The progress before and after, or null if the achievement does not exist
+	 */
+	public AchieveStorage.Progress addProgress(String title, String category, int delta) throws IOException {
+		this.lock.writeLock().lock();
+		try {
+			Entry entry = this.index.get(new Key(title, category));
+			if(entry == null) return null;
+
+			AchieveStorage.Progress progress = new AchieveStorage.Progress();
+			progress.maxProg = entry.maxProg;
+			progress.previousProg = entry.currentProg;
+			progress.currentProg = (int) Math.min((long) entry.currentProg + delta, entry.maxProg);
+			progress.unlocked = progress.previousProg < progress.maxProg && progress.currentProg >= progress.maxProg;
+			if(progress.currentProg == progress.previousProg) return progress;	//Already complete, nothing to write
+
+			Record record = this.readRecord(entry);
+			record.currentProg = progress.currentProg;
+			byte[] bytes = this.encode(PUT, record);
+			this.applyPut(record, this.append(bytes), bytes.length);
+			return progress;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Changes the image URL of the achievement stored under ($title, $category)
+	 * @return
+	 * 	True iff the achievement exists
+	 */
+	public boolean setImage(String title, String category, String imageURL) throws IOException {
+		this.lock.writeLock().lock();
+		try {
+			Entry entry = this.index.get(new Key(title, category));
+			if(entry == null) return false;
+
+			Record record = this.readRecord(entry);
+			record.imageURL = imageURL;
+			byte[] bytes = this.encode(PUT, record);
+			this.applyPut(record, this.append(bytes), bytes.length);
+			return true;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the achievement stored under ($title, $category)
+	 * @return
+	 * 	True iff the achievement existed
+	 */
+	public boolean delete(String title, String category) throws IOException {
+		Record key = new Record();
+		key.title = title;
+		key.category = category;
+		byte[] bytes = this.encode(DELETE, key);
+
+		this.lock.writeLock().lock();
+		try {
+			if(!this.index.containsKey(new Key(title, category))) return false;
+			this.append(bytes);
+			this.applyDelete(key, bytes.length);
+			return true;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes every achievement within $category, appending all of the deletions in a single write
+	 * @return
+	 * 	The number of achievements removed
+	 */
+	public int deleteCategory(String category) throws IOException {
+		this.lock.writeLock().lock();
+		try {
+			TreeSet<String> titles = this.categories.get(category);
+			if(titles == null) return 0;
+
+			List<Record> keys = new ArrayList<Record>(titles.size());
+			int[] lengths = new int[titles.size()];
+			ByteArrayOutputStream deletions = new ByteArrayOutputStream();
+			for(String title : titles) {
+				Record key = new Record();
+				key.title = title;
+				key.category = category;
+				byte[] bytes = this.encode(DELETE, key);
+				deletions.write(bytes);
+				lengths[keys.size()] = bytes.length;
+				keys.add(key);
+			}
+
+			this.append(deletions.toByteArray());
+			for(int i = 0; i < keys.size(); i++) {
+				this.applyDelete(keys.get(i), lengths[i]);
+			}
+			return keys.size();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Copies $image into the image directory of the store under a name made from $category and $title
+	 * @return
+	 * 	A file URL of the copy
+	 */
+	public String storeImage(String title, String category, File image) throws IOException {
+		File imageDirectory = new File(this.directory, IMAGE_DIRECTORY);
+		if(!imageDirectory.isDirectory() && !imageDirectory.mkdirs()) throw new IOException("Could not create local image directory: " + imageDirectory);
+
+		String name = image.getName();
+		String extension = (name.lastIndexOf('.') < 0) ? "" : name.substring(name.lastIndexOf('.'));
+		String fileName = (category + "_" + title).replaceAll("[^A-Za-z0-9_-]", "_")
+				+ "_" + Integer.toHexString(new Key(title, category).hashCode()) + extension;	//Keeps names that only differ in symbols apart
+
+		File copy = new File(imageDirectory, fileName);
+		Files.copy(image.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return copy.toURI().toString();
+	}
+
+	//Log --------------------------------------------------------------------
+
+	/**
+	 * Encodes a record as [payload length][CRC-32 of payload][op, title, category, (description, maxProg, currentProg, imageURL)]
+	 */
+	private byte[] encode(byte op, Record record) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0);
+		out.writeInt(0);
+		out.writeByte(op);
+		out.writeUTF(record.title);
+		out.writeUTF(record.category);
+		if(op == PUT) {
+			writeNullable(out, record.description);
+			out.writeInt(record.maxProg);
+			out.writeInt(record.currentProg);
+			writeNullable(out, record.imageURL);
+		}
+		out.flush();
+
+		byte[] encoded = bytes.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(encoded, HEADER_SIZE, encoded.length - HEADER_SIZE);
+		ByteBuffer.wrap(encoded).putInt(encoded.length - HEADER_SIZE).putInt((int) crc.getValue());
+		return encoded;
+	}
+
+	private static Record decode(byte[] bytes, int from, int length, byte[] op) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, from, length));
+		Record record = new Record();
+		op[0] = in.readByte();
+		record.title = in.readUTF();
+		record.category = in.readUTF();
+		if(op[0] == PUT) {
+			record.description = readNullable(in);
+			record.maxProg = in.readInt();
+			record.currentProg = in.readInt();
+			record.imageURL = readNullable(in);
+		}
+		return record;
+	}
+
+	private static void writeNullable(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if(value != null) out.writeUTF(value);
+	}
+
+	private static String readNullable(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/**
+	 * Writes $bytes to the end of the log (caller holds the write lock)
+	 * @return
+	 * 	Offset the bytes were written at
+	 */
+	private long append(byte[] bytes) throws IOException {
+		long offset = this.logLength;
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		long position = offset;
+		while(buffer.hasRemaining()) {
+			position += this.channel.write(buffer, position);
+		}
+		this.logLength = position;
+		return offset;
+	}
+
+	private Record readRecord(Entry entry) throws IOException {
+		byte[] bytes = this.read(entry.offset, entry.length);
+		return decode(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, new byte[1]);
+	}
+
+	/**
+	 * Reads $length bytes of the log at $offset with positional reads (which do not move the channel's position, so reads can run at the same time)
+	 */
+	private byte[] read(long offset, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while(buffer.hasRemaining()) {
+			if(this.channel.read(buffer, offset + buffer.position()) < 0) throw new IOException("Unexpected end of local storage log.");
+		}
+		return bytes;
+	}
+
+	/**
+	 * Applies every record of the log from $from onward to the indexes.
+	 * A torn or corrupt record (from a crash part way through a write) ends the log, and it is truncated there.
+	 */
+	private void replay(long from) throws IOException {
+		long position = from;
+		byte[] op = new byte[1];
+		while(position < this.logLength) {
+			if(position + HEADER_SIZE > this.logLength) break;
+			ByteBuffer header = ByteBuffer.wrap(this.read(position, HEADER_SIZE));
+			int payloadLength = header.getInt();
+			int checksum = header.getInt();
+			if(payloadLength <= 0 || position + HEADER_SIZE + payloadLength > this.logLength) break;
+
+			byte[] payload = this.read(position + HEADER_SIZE, payloadLength);
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			if((int) crc.getValue() != checksum) break;
+
+			Record record = decode(payload, 0, payloadLength, op);
+			int length = HEADER_SIZE + payloadLength;
+			if(op[0] == PUT) {
+				this.applyPut(record, position, length);
+			} else {
+				if(this.index.containsKey(new Key(record.title, record.category))) this.applyDelete(record, length);
+				else this.deadBytes += length;
+			}
+			position += length;
+		}
+
+		if(position < this.logLength) {
+			System.err.println("[WARNING] Local storage log was damaged after " + position + " bytes, dropping the last " + (this.logLength - position) + " bytes.");
+			this.channel.truncate(position);
+			this.logLength = position;
+		}
+	}
+
+	//Indexes ----------------------------------------------------------------
+
+	/**
+	 * Points the indexes at a new record of an achievement
+	 * @return
+	 * 	True iff an earlier record of the achievement was replaced
+	 */
+	private boolean applyPut(Record record, long offset, int length) {
+		boolean needsImage = record.imageURL == null || record.imageURL.equals(this.missingImageText);
+		return this.applyPut(new Key(record.title, record.category), new Entry(offset, length, record.currentProg, record.maxProg, needsImage));
+	}
+
+	private boolean applyPut(Key key, Entry entry) {
+		Entry previous = this.index.put(key, entry);
+		if(previous != null) {
+			this.deadBytes += previous.length;
+			this.unindex(key, previous);
+		}
+
+		TreeSet<String> titles = this.categories.get(key.category);
+		if(titles == null) {
+			titles = new TreeSet<String>();
+			this.categories.put(key.category, titles);
+		}
+		titles.add(key.title);
+
+		CategoryProgress totals = this.progress.get(key.category);
+		if(totals == null) {
+			totals = new CategoryProgress();
+			this.progress.put(key.category, totals);
+		}
+		totals.add(entry.currentProg, entry.maxProg);
+
+		if(entry.needsImage) this.missingImage.add(key);
+		return previous != null;
+	}
+
+	/**
+	 * Removes an achievement from the indexes (the deletion record itself is $length bytes of garbage)
+	 */
+	private void applyDelete(Record record, int length) {
+		Key key = new Key(record.title, record.category);
+		Entry previous = this.index.remove(key);
+		this.deadBytes += length;
+		if(previous != null) {
+			this.deadBytes += previous.length;
+			this.unindex(key, previous);
+		}
+	}
+
+	/**
+	 * Takes the record $entry of $key out of the secondary indexes
+	 */
+	private void unindex(Key key, Entry entry) {
+		CategoryProgress totals = this.progress.get(key.category);
+		totals.remove(entry.currentProg, entry.maxProg);
+		if(totals.achievements <= 0) this.progress.remove(key.category);
+
+		if(!this.index.containsKey(key)) {
+			TreeSet<String> titles = this.categories.get(key.category);
+			titles.remove(key.title);
+			if(titles.isEmpty()) this.categories.remove(key.category);
+		}
+
+		if(entry.needsImage) this.missingImage.remove(key);
+	}
+
+	private void clearIndexes() {
+		this.index.clear();
+		this.categories.clear();
+		this.progress.clear();
+		this.missingImage.clear();
+		this.deadBytes = 0;
+	}
+
+	/**
+	 * Loads the index file into the indexes.
+	 * @return
+	 * 	Length of the log the index file covers, or -1 if there is no usable index file
+	 */
+	private long loadIndex() {
+		if(!this.indexFile.isFile()) return -1;
+
+		CRC32 crc = new CRC32();
+		try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(this.indexFile)), crc))) {
+			if(in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) throw new IOException("Unknown index file format.");
+			long coveredLength = in.readLong();
+			long deadBytes = in.readLong();
+			int count = in.readInt();
+			if(coveredLength > this.logLength) throw new IOException("Index file is newer than the log.");
+
+			for(int i = 0; i < count; i++) {
+				Key key = new Key(in.readUTF(), in.readUTF());
+				this.applyPut(key, new Entry(in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readBoolean()));
+			}
+
+			long expected = crc.getValue();
+			if(in.readLong() != expected) throw new IOException("Index file checksum does not match.");
+
+			this.deadBytes = deadBytes;
+			this.checkpointLength = coveredLength;
+			return coveredLength;
+		} catch (IOException e) {
+			System.err.println("[WARNING] Could not load local storage index, rebuilding it from the log.");
+			System.err.println(e.getMessage());
+			return -1;
+		}
+	}
+
+	/**
+	 * Saves the indexes to the index file if the log has changed since they were last saved.
+	 * The file is written beside the old one and then moved over it, so a crash leaves either the old or the new index.
+	 */
+	public void checkpoint() throws IOException {
+		synchronized(this.maintenanceLock) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			CRC32 crc = new CRC32();
+			DataOutputStream out = new DataOutputStream(new CheckedOutputStream(bytes, crc));
+			long coveredLength;
+
+			this.lock.readLock().lock();
+			try {
+				coveredLength = this.logLength;
+				if(coveredLength == this.checkpointLength) return;
+
+				out.writeInt(INDEX_MAGIC);
+				out.writeInt(INDEX_VERSION);
+				out.writeLong(coveredLength);
+				out.writeLong(this.deadBytes);
+				out.writeInt(this.index.size());
+				for(Map.Entry<Key, Entry> indexed : this.index.entrySet()) {
+					Entry entry = indexed.getValue();
+					out.writeUTF(indexed.getKey().title);
+					out.writeUTF(indexed.getKey().category);
+					out.writeLong(entry.offset);
+					out.writeInt(entry.length);
+					out.writeInt(entry.currentProg);
+					out.writeInt(entry.maxProg);
+					out.writeBoolean(entry.needsImage);
+				}
+				out.flush();
+			} finally {
+				this.lock.readLock().unlock();
+			}
+			out.writeLong(crc.getValue());
+			out.flush();
+
+			this.channel.force(false);	//The log must be on disk before an index that covers it
+			File temporary = new File(this.directory, INDEX_NAME + ".tmp");
+			writeFile(temporary, bytes.toByteArray());
+			Files.move(temporary.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			this.checkpointLength = coveredLength;
+		}
+	}
+
+	private static void writeFile(File file, byte[] bytes) throws IOException {
+		try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			while(buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			out.force(true);
+		}
+	}
+
+	//Maintenance ------------------------------------------------------------
+
+	/**
+	 * Compacts the log once at least half of it is garbage, otherwise saves the index if it is out of date
+	 */
+	private void maintain() {
+		try {
+			long garbage, length;
+			this.lock.readLock().lock();
+			try {
+				garbage = this.deadBytes;
+				length = this.logLength;
+			} finally {
+				this.lock.readLock().unlock();
+			}
+
+			if(garbage >= MIN_COMPACT_BYTES && garbage * 2 >= length) this.compact();
+			else this.checkpoint();
+		} catch (Exception e) {
+			System.err.println("[WARNING] Local storage maintenance failed.");
+			System.err.println(e.getMessage());
+		}
+	}
+
+	/**
+	 * Rewrites the log with only the latest record of each achievement.
+	 * The live records are copied to a new log without blocking reads or writes; only the records appended during the copy
+	 * are carried over while writes are blocked, after which the new log replaces the old one.
+	 */
+	public void compact() throws IOException {
+		synchronized(this.maintenanceLock) {
+			if(this.closed) return;
+
+			/*
+			 * Phase 1: snapshot the live records and copy them to the new log (the log only grows, so they cannot change underneath us)
+			 */
+			long snapshotLength;
+			List<Map.Entry<Key, long[]>> live = new ArrayList<Map.Entry<Key, long[]>>();
+			this.lock.readLock().lock();
+			try {
+				snapshotLength = this.logLength;
+				for(Map.Entry<Key, Entry> indexed : this.index.entrySet()) {
+					Entry entry = indexed.getValue();
+					live.add(new AbstractMap.SimpleImmutableEntry<Key, long[]>(indexed.getKey(), new long[] {entry.offset, entry.length}));
+				}
+			} finally {
+				this.lock.readLock().unlock();
+			}
+			Collections.sort(live, Comparator.comparingLong(entry -> entry.getValue()[0]));	//Read the old log front to back
+
+			File compactFile = new File(this.directory, LOG_NAME + ".compact");
+			Map<Key, Long> moved = new HashMap<Key, Long>(live.size() * 2);
+			try (FileChannel out = FileChannel.open(compactFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				long position = 0;
+				for(Map.Entry<Key, long[]> entry : live) {
+					ByteBuffer buffer = ByteBuffer.wrap(this.read(entry.getValue()[0], (int) entry.getValue()[1]));
+					moved.put(entry.getKey(), position);
+					while(buffer.hasRemaining()) {
+						position += out.write(buffer, position);
+					}
+				}
+
+				/*
+				 * Phase 2: block writes, carry over the records appended since the snapshot and swap the logs
+				 */
+				this.lock.writeLock().lock();
+				try {
+					long tailStart = position;
+					long tailLength = this.logLength - snapshotLength;
+					while(position < tailStart + tailLength) {
+						position += this.channel.transferTo(snapshotLength + (position - tailStart), tailStart + tailLength - position, out.position(position));
+					}
+					out.force(true);
+					out.close();
+
+					//The old index file points into the old log, so it goes first (a crash now only costs a full replay)
+					Files.deleteIfExists(this.indexFile.toPath());
+					this.checkpointLength = -1;
+
+					//The old log is closed first, as an open file cannot be replaced on every platform
+					this.channel.close();
+					try {
+						Files.move(compactFile.toPath(), this.logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					} finally {
+						this.channel = FileChannel.open(this.logFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+					}
+
+					long liveBytes = 0;
+					for(Map.Entry<Key, Entry> indexed : this.index.entrySet()) {
+						Entry entry = indexed.getValue();
+						entry.offset = (entry.offset >= snapshotLength) ? tailStart + (entry.offset - snapshotLength) : moved.get(indexed.getKey());
+						liveBytes += entry.length;
+					}
+					long oldLength = this.logLength;
+					this.logLength = position;
+					this.deadBytes = position - liveBytes;
+					System.err.println("[SUCCESS] Compacted local storage log from " + oldLength + " to " + position + " bytes.");
+				} finally {
+					this.lock.writeLock().unlock();
+				}
+			}
+
+			this.checkpoint();
+		}
+	}
+}
@@ -0,0 +1,382 @@
+/**
+ * Stores achievement program data in memory only, so nothing is kept once the program exits.
+ * Useful for demos, short-lived batch jobs and as the baseline when measuring the overhead of the other storage.
+ *
+ * Achievements are kept in a concurrent skip list sorted by (category, title), so reading a category is a range read of the list.
+ * The progress totals of every category and the achievements without an image are indexed as they are written,
+ * so category progress is a single lookup. Reads never lock; writes to the same achievement are serialized by a striped lock.
+ * Stored achievements are never changed in place (every write stores a new one), so readers always see whole achievements.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class MemoryStorage implements AchieveStorage {
+
+	/**
+	 * A stored account (passwords are kept as PasswordHasher hashes, like every other storage)
+	 */
+	private static class Account {
+		private String email;
+		private String password;
+		private String type;
+		private final byte[] sessionSecret = SessionToken.newSecret();
+	}
+
+	/**
+	 * The (category, title) an achievement is stored under, sorted by category and then title
+	 */
+	private static final class Key implements Comparable<Key> {
+		private final String category;
+		private final String title;
+
+		private Key(String category, String title) {
+			this.category = category;
+			this.title = title;
+		}
+
+		@Override
+		public int compareTo(Key other) {
+			int compare = this.category.compareTo(other.category);
+			return (compare != 0) ? compare : this.title.compareTo(other.title);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return (other instanceof Key) && this.compareTo((Key) other) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * this.category.hashCode() + this.title.hashCode();
+		}
+	}
+
+	private static final int LOCK_STRIPES = 64;		//Power of two, so a stripe can be picked with a mask
+
+	private final ConcurrentMap<String, Account> accounts;
+	private final ConcurrentSkipListMap<Key, Achievement> achievements;
+	private final ConcurrentHashMap<String, CategoryProgress> progress;
+	private final Set<Key> missingImage;
+	private final Object[] locks;
+	private volatile PasswordHasher passwordHasher;
+
+	public MemoryStorage() {
+		this.accounts = new ConcurrentHashMap<String, Account>();
+		this.achievements = new ConcurrentSkipListMap<Key, Achievement>();
+		this.progress = new ConcurrentHashMap<String, CategoryProgress>();
+		this.missingImage = ConcurrentHashMap.newKeySet();
+		this.locks = new Object[LOCK_STRIPES];
+		for(int i = 0; i < LOCK_STRIPES; i++) {
+			this.locks[i] = new Object();
+		}
+		this.passwordHasher = null;
+	}
+
+	@Override
+	public void connect(AchieveSettings settings) {
+		this.passwordHasher = new PasswordHasher(settings.getPasswordHashIterations());
+		System.err.println("[SUCCESS] Using memory storage.");
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public void createDatabase() {
+		System.err.println("[WARNING] Memory storage has no database to create.");
+	}
+
+	@Override
+	public void createKey() {
+		System.err.println("[WARNING] Memory storage does not use an encryption key.");
+	}
+
+	//Accounts ---------------------------------------------------------------
+
+	@Override
+	public CreateResult createAccount(String username, String email, String password, AchieveSettings settings) {
+		Account account = new Account();
+		account.email = email;
+		account.type = "artist";
+		try {
+			account.password = this.passwordHasher.hash(password, null);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not create account.");
+			System.err.println(e.getMessage());
+			return CreateResult.FAILED;
+		}
+
+		return (this.accounts.putIfAbsent(username, account) == null) ? CreateResult.CREATED : CreateResult.ALREADY_EXISTS;
+	}
+
+	@Override
+	public boolean login(String username, String password, AchieveSettings settings) {
+		Account account = this.accounts.get(username);
+		if(account == null) {
+			System.err.println("[ERROR] No account with that username could be found.");
+		} else {
+			try {
+				if(PasswordHasher.verify(account.password, password, null)) {
+					startSession(username, account, settings);
+					System.err.println("[SUCCESS] Successfully logged in.");
+					return true;
+				}
+				System.err.println("[ERROR] Incorrect password.");
+			} catch (Exception e) {
+				System.err.println("[ERROR] Could not log in.");
+				System.err.println(e.getMessage());
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public SessionResult resumeSession(String username, String sessionToken, AchieveSettings settings) {
+		Account account = this.accounts.get(username);
+		try {
+			if(account != null && SessionToken.verify(sessionToken, username, account.sessionSecret)) {
+				startSession(username, account, settings);
+				System.err.println("[SUCCESS] Resumed login session.");
+				return SessionResult.RESUMED;
+			}
+		} catch (Exception e) {
+			System.err.println(e.getMessage());
+		}
+		System.err.println("[ERROR] Login session is no longer valid.");
+		return SessionResult.REJECTED;
+	}
+
+	private static void startSession(String username, Account account, AchieveSettings settings) {
+		settings.setAccountType(account.type);
+		settings.setIsLoggedIn(true);
+		try {
+			settings.setSessionToken(SessionToken.create(username, settings.getSessionDays(), account.sessionSecret));
+			settings.setSessionAccountType(account.type);
+		} catch (Exception e) {
+			System.err.println("[WARNING] Could not create login session.");
+			System.err.println(e.getMessage());
+		}
+	}
+
+	//Reads ------------------------------------------------------------------
+
+	@Override
+	public Map<String, Double> getCategories() {
+		Map<String, Double> categories = new TreeMap<String, Double>();
+		for(Map.Entry<String, CategoryProgress> category : this.progress.entrySet()) {
+			if(category.getValue().achievements > 0) categories.put(category.getKey(), category.getValue().getPercentage());
+		}
+		return categories;
+	}
+
+	/**
+	 * Gets the progress totals of $category in constant time
+	 * @return
+	 * 	Copy of the totals (empty if the category has no achievements)
+	 */
+	public CategoryProgress getCategoryProgress(String category) {
+		CategoryProgress copy = new CategoryProgress();
+		CategoryProgress totals = this.progress.get(category);
+		if(totals != null) copy.merge(totals);
+		return copy;
+	}
+
+	@Override
+	public Map<String, Achievement> getAchievements(String category) {
+		Map<String, Achievement> achievements = new TreeMap<String, Achievement>();
+		for(Map.Entry<Key, Achievement> achievement : this.categoryRange(category).entrySet()) {
+			achievements.put(achievement.getKey().title, copy(achievement.getValue()));
+		}
+		return achievements;
+	}
+
+	@Override
+	public Set<AchievementPair> getNoImageAchievements() {
+		Set<AchievementPair> achievements = new HashSet<AchievementPair>();
+		for(Key key : this.missingImage) {
+			AchievementPair pair = new AchievementPair();
+			pair.title = key.title;
+			pair.category = key.category;
+			achievements.add(pair);
+		}
+		return achievements;
+	}
+
+	@Override
+	public boolean isUnique(String title, String category) {
+		return !this.achievements.containsKey(new Key(category, title));
+	}
+
+	/**
+	 * @return
+	 * 	Live view of every achievement within $category ($category + "\0" sorts after every title of $category and before the next category)
+	 */
+	private ConcurrentNavigableMap<Key, Achievement> categoryRange(String category) {
+		return this.achievements.subMap(new Key(category, ""), true, new Key(category + "\0", ""), false);
+	}
+
+	//Writes -----------------------------------------------------------------
+
+	@Override
+	public CreateResult createAchievement(String title, String category, String description, int maxProg, String imageURL) {
+		Achievement achievement = new Achievement();
+		achievement.description = description;
+		achievement.maxProg = maxProg;
+		achievement.imageURL = (imageURL == null) ? MISSING_IMAGE_TEXT : imageURL;	//iff imageURL is missing, it is replaced with the missing image text
+
+		Key key = new Key(category, title);
+		synchronized(this.lockFor(key)) {
+			if(this.achievements.containsKey(key)) return CreateResult.ALREADY_EXISTS;
+			this.store(key, achievement);
+		}
+		return CreateResult.CREATED;
+	}
+
+	@Override
+	public Progress incrementProgress(String title, String category, int delta) {
+		if(delta <= 0) {
+			System.err.println("[ERROR] Progress can only be incremented by a positive amount.");
+			return null;
+		}
+
+		Key key = new Key(category, title);
+		synchronized(this.lockFor(key)) {
+			Achievement stored = this.achievements.get(key);
+			if(stored == null) {
+				System.err.println("[ERROR] No achievement to increment the progress of: " + category + ": " + title);
+				return null;
+			}
+
+			Progress progress = new Progress();
+			progress.maxProg = stored.maxProg;
+			progress.previousProg = stored.currentProg;
+			progress.currentProg = (int) Math.min((long) stored.currentProg + delta, stored.maxProg);
+			progress.unlocked = progress.previousProg < progress.maxProg && progress.currentProg >= progress.maxProg;
+
+			if(progress.currentProg != progress.previousProg) {
+				Achievement achievement = copy(stored);
+				achievement.currentProg = progress.currentProg;
+				this.store(key, achievement);
+			}
+			return progress;
+		}
+	}
+
+	@Override
+	public void changeAchievementImage(String title, String category, String imageURL) {
+		Key key = new Key(category, title);
+		synchronized(this.lockFor(key)) {
+			Achievement stored = this.achievements.get(key);
+			if(stored == null) {
+				System.err.println("[ERROR] No achievement to change the image of: " + title);
+				return;
+			}
+
+			Achievement achievement = copy(stored);
+			achievement.imageURL = (imageURL == null) ? MISSING_IMAGE_TEXT : imageURL;
+			this.store(key, achievement);
+		}
+	}
+
+	@Override
+	public void deleteAchievement(String achievement, String category) {
+		Key key = new Key(category, achievement);
+		synchronized(this.lockFor(key)) {
+			this.remove(key);
+		}
+	}
+
+	@Override
+	public BatchWriter.Result deleteCategory(String category) {
+		int deleted = 0;
+		for(Key key : this.categoryRange(category).keySet()) {
+			synchronized(this.lockFor(key)) {
+				if(this.remove(key)) deleted++;
+			}
+		}
+		return new BatchWriter.Result(deleted, 0);
+	}
+
+	/**
+	 * Images are not copied, so the URL points at $image itself
+	 */
+	@Override
+	public String createImageURL(String achieveTitle, String category, File image) {
+		return image.toURI().toString();
+	}
+
+	/**
+	 * Stores $achievement under $key and updates the indexes (caller holds the lock of $key)
+	 */
+	private void store(Key key, Achievement achievement) {
+		Achievement previous = this.achievements.put(key, achievement);
+		if(MISSING_IMAGE_TEXT.equals(achievement.imageURL)) this.missingImage.add(key);
+		else this.missingImage.remove(key);
+
+		long achievements = (previous == null) ? 1 : 0;
+		long currentProg = achievement.currentProg - ((previous == null) ? 0 : previous.currentProg);
+		long maxProg = achievement.maxProg - ((previous == null) ? 0 : previous.maxProg);
+		this.addProgress(key.category, currentProg, maxProg, achievements);
+	}
+
+	/**
+	 * Removes the achievement under $key and updates the indexes (caller holds the lock of $key)
+	 * @return
+	 * 	True iff there was an achievement to remove
+	 */
+	private boolean remove(Key key) {
+		Achievement previous = this.achievements.remove(key);
+		if(previous == null) return false;
+
+		this.missingImage.remove(key);
+		this.addProgress(key.category, -previous.currentProg, -previous.maxProg, -1);
+		return true;
+	}
+
+	/**
+	 * Atomically replaces the totals of $category with new totals (the published totals are never changed, so they can be read without locking)
+	 */
+	private void addProgress(String category, long currentProg, long maxProg, long achievements) {
+		this.progress.compute(category, (name, totals) -> {
+			CategoryProgress updated = new CategoryProgress();
+			if(totals != null) updated.merge(totals);
+			updated.currentProg += currentProg;
+			updated.maxProg += maxProg;
+			updated.achievements += achievements;
+			return (updated.achievements > 0) ? updated : null;
+		});
+	}
+
+	private Object lockFor(Key key) {
+		int hash = key.hashCode();
+		return this.locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+	}
+
+	private static Achievement copy(Achievement achievement) {
+		Achievement copy = new Achievement();
+		copy.description = achievement.description;
+		copy.maxProg = achievement.maxProg;
+		copy.currentProg = achievement.currentProg;
+		copy.imageURL = achievement.imageURL;
+		return copy;
+	}
+}
@@ -0,0 +1,148 @@
+/**
+ * Splits a DynamoDB scan into segments (Segment/TotalSegments) that are paged through concurrently on a fork-join pool.
+ * Each segment folds its items into its own accumulator and the accumulators are merged pairwise as the segments finish.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+
+public class ParallelScan {
+
+	private static final long BYTES_PER_SEGMENT = 4L * 1024 * 1024;		//Roughly four full scan pages per segment
+	private static final long READ_UNITS_PER_SEGMENT = 5;				//Provisioned read capacity each segment should have available
+	private static final int MAX_SEGMENTS = 1000000;						//DynamoDB limit on TotalSegments
+
+	private final AmazonDynamoDB client;
+	private final ForkJoinPool pool;
+	private final int pageSize;
+
+	/**
+	 * @param client
+	 * 	DynamoDB client to issue the scans with
+	 * @param pool
+	 * 	Pool to run the segments on
+	 * @param pageSize
+	 * 	Max items evaluated per page of each segment (0 lets DynamoDB fill 1 MB pages)
+	 */
+	public ParallelScan(AmazonDynamoDB client, ForkJoinPool pool, int pageSize) {
+		this.client = client;
+		this.pool = pool;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Picks how many segments to split a scan of $tableName into, based on the table size and provisioned read capacity reported by DescribeTable.
+	 * Small tables get a single segment, since splitting them only adds round trips.
+	 * @param tableName
+	 * 	The table that will be scanned
+	 * @return
+	 * 	Number of segments to use (at least 1)
+	 */
+	public int chooseSegments(String tableName) {
+		TableDescription table = this.client.describeTable(tableName).getTable();
+		long tableSize = (table.getTableSizeBytes() == null) ? 0 : table.getTableSizeBytes();
+
+		long segments = (tableSize + BYTES_PER_SEGMENT - 1) / BYTES_PER_SEGMENT;
+		segments = Math.min(segments, this.pool.getParallelism() * 4L);		//More segments than threads only helps to balance uneven segments
+		if(table.getProvisionedThroughput() != null && table.getProvisionedThroughput().getReadCapacityUnits() != null) {
+			long readCapacity = table.getProvisionedThroughput().getReadCapacityUnits();
+			if(readCapacity > 0) segments = Math.min(segments, readCapacity / READ_UNITS_PER_SEGMENT);	//On-demand tables report 0
+		}
+
+		return (int) Math.max(1, Math.min(segments, MAX_SEGMENTS));
+	}
+
+	/**
+	 * Scans every segment of $request concurrently, folding each item into the accumulator of its segment.
+	 * $request itself is never modified.
+	 * @param request
+	 * 	The scan to run
+	 * @param totalSegments
+	 * 	Number of segments to split the scan into
+	 * @param newAccumulator
+	 * 	Creates an empty accumulator for a segment
+	 * @param fold
+	 * 	Adds an item to an accumulator
+	 * @param merge
+	 * 	Combines the accumulators of two segments
+	 * @return
+	 * 	The merged accumulator of every segment
+	 */
+	public <A> A run(ScanRequest request, int totalSegments, Supplier<A> newAccumulator,
+			BiConsumer<A, Map<String, AttributeValue>> fold, BinaryOperator<A> merge) {
+		if(totalSegments <= 1) return this.scanSegment(request, newAccumulator, fold);
+		return this.pool.invoke(new SegmentTask<A>(request, 0, totalSegments, totalSegments, newAccumulator, fold, merge));
+	}
+
+	/**
+	 * Pages through a single scan (or segment) and folds every item into a new accumulator
+	 */
+	private <A> A scanSegment(ScanRequest request, Supplier<A> newAccumulator, BiConsumer<A, Map<String, AttributeValue>> fold) {
+		A accumulator = newAccumulator.get();
+		for(Map<String, AttributeValue> item : ItemPager.scan(this.client, request).withPageSize(this.pageSize)) {
+			fold.accept(accumulator, item);
+		}
+		return accumulator;
+	}
+
+	/**
+	 * Scans the segments [from, to), splitting the range in half until a single segment is left
+	 */
+	private class SegmentTask<A> extends RecursiveTask<A> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ScanRequest request;
+		private final int from, to, totalSegments;
+		private final Supplier<A> newAccumulator;
+		private final BiConsumer<A, Map<String, AttributeValue>> fold;
+		private final BinaryOperator<A> merge;
+
+		private SegmentTask(ScanRequest request, int from, int to, int totalSegments, Supplier<A> newAccumulator,
+				BiConsumer<A, Map<String, AttributeValue>> fold, BinaryOperator<A> merge) {
+			this.request = request;
+			this.from = from;
+			this.to = to;
+			this.totalSegments = totalSegments;
+			this.newAccumulator = newAccumulator;
+			this.fold = fold;
+			this.merge = merge;
+		}
+
+		@Override
+		protected A compute() {
+			if(this.to - this.from == 1) {
+				ScanRequest segmentRequest = this.request.clone()
+						.withSegment(this.from)
+						.withTotalSegments(this.totalSegments);
+				return scanSegment(segmentRequest, this.newAccumulator, this.fold);
+			}
+
+			int middle = (this.from + this.to) >>> 1;
+			SegmentTask<A> left = new SegmentTask<A>(this.request, this.from, middle, this.totalSegments, this.newAccumulator, this.fold, this.merge);
+			SegmentTask<A> right = new SegmentTask<A>(this.request, middle, this.to, this.totalSegments, this.newAccumulator, this.fold, this.merge);
+			left.fork();
+			A rightResult = right.compute();
+			return this.merge.apply(left.join(), rightResult);
+		}
+	}
+}
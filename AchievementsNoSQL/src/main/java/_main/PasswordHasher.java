@@ -0,0 +1,120 @@
+/**
+ * Salted, deliberately slow password hashes that are checked locally.
+ *
+ * Each password is run through PBKDF2 (HMAC-SHA256) with its own random salt. When a pepper is given the result is also keyed with it
+ * (HMAC-SHA256), so a copy of the account table is not enough to test guesses without the pepper as well. A stored hash records its
+ * scheme, iteration count and salt, so hashes made with an older iteration count (or without the pepper) still verify and can be
+ * replaced the next time their owner logs in.
+ *
+ * Stored form: pbkdf2$iterations$salt$hash, or pbkdf2p$iterations$salt$hash when peppered (salt and hash in Base64)
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+public class PasswordHasher {
+
+	private static final String SCHEME = "pbkdf2", PEPPERED_SCHEME = "pbkdf2p";
+	private static final int SALT_BYTES = 16, HASH_BITS = 256;
+
+	private final int iterations;
+	private final SecureRandom random;
+
+	/**
+	 * @param iterations
+	 * 	PBKDF2 iterations of new hashes (each one costs the same for a login as for a guess)
+	 */
+	public PasswordHasher(int iterations) {
+		this.iterations = iterations;
+		this.random = new SecureRandom();
+	}
+
+	/**
+	 * @return
+	 * 	Whether $stored is a hash made by this class (rather than, say, a password encrypted with KMS)
+	 */
+	public static boolean isHash(String stored) {
+		return stored != null && (stored.startsWith(SCHEME + "$") || stored.startsWith(PEPPERED_SCHEME + "$"));
+	}
+
+	/**
+	 * @return
+	 * 	Whether $stored was keyed with the pepper (so the pepper is needed to verify it)
+	 */
+	public static boolean isPeppered(String stored) {
+		return stored.startsWith(PEPPERED_SCHEME + "$");
+	}
+
+	/**
+	 * Hashes $password with a new random salt
+	 * @param pepper
+	 * 	Secret shared by every hash, or null for none
+	 * @return
+	 * 	The hash in its stored form
+	 */
+	public String hash(String password, byte[] pepper) throws GeneralSecurityException {
+		byte[] salt = new byte[SALT_BYTES];
+		this.random.nextBytes(salt);
+		Base64.Encoder base64 = Base64.getEncoder();
+		return ((pepper == null) ? SCHEME : PEPPERED_SCHEME) + "$" + this.iterations + "$"
+				+ base64.encodeToString(salt) + "$" + base64.encodeToString(derive(password, salt, this.iterations, pepper));
+	}
+
+	/**
+	 * Checks $password against $stored in constant time
+	 * @param pepper
+	 * 	Secret shared by every hash (only used if $stored is peppered)
+	 * @return
+	 * 	Whether $password is the one $stored was made from
+	 */
+	public static boolean verify(String stored, String password, byte[] pepper) throws GeneralSecurityException {
+		String[] parts = stored.split("\\$");
+		if(parts.length != 4 || !isHash(stored)) throw new GeneralSecurityException("Unrecognised password hash.");
+		if(isPeppered(stored) && pepper == null) throw new GeneralSecurityException("Password hash needs the pepper.");
+
+		Base64.Decoder base64 = Base64.getDecoder();
+		byte[] expected = base64.decode(parts[3]);
+		byte[] actual = derive(password, base64.decode(parts[2]), Integer.parseInt(parts[1]), isPeppered(stored) ? pepper : null);
+		return MessageDigest.isEqual(expected, actual);
+	}
+
+	/**
+	 * @return
+	 * 	Whether $stored was made with a different iteration count or pepper setting than new hashes, so it should be replaced
+	 */
+	public boolean needsRehash(String stored, boolean peppered) {
+		String[] parts = stored.split("\\$");
+		return isPeppered(stored) != peppered || parts.length != 4 || !parts[1].equals(Integer.toString(this.iterations));
+	}
+
+	private static byte[] derive(String password, byte[] salt, int iterations, byte[] pepper) throws GeneralSecurityException {
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+		try {
+			byte[] hash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+			if(pepper == null) return hash;
+
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(pepper, "HmacSHA256"));
+			return mac.doFinal(hash);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+}
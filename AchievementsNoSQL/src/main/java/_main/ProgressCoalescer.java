@@ -0,0 +1,174 @@
+/**
+ * Coalesces rapid progress increments of the same achievement into a single update per flush interval.
+ *
+ * The first increment of an achievement starts an interval; every increment of that achievement made before the interval ends is summed
+ * into one update, which is sent once the interval ends. Each caller still gets its own result: the progress before and after its part
+ * of the combined increment, and whether its part is the one that unlocked the achievement.
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import _main.AchieveStorage.Progress;
+
+public class ProgressCoalescer {
+
+	/**
+	 * Sends a single increment to the storage
+	 */
+	public interface Updater {
+		/**
+		 * @return
+		 * 	The progress before and after adding $delta, or null if the achievement could not be updated
+		 */
+		Progress increment(String title, String category, int delta);
+	}
+
+	/**
+	 * Increments of one achievement waiting for the end of the interval, in the order they were made
+	 */
+	private static class Batch {
+		private final List<Integer> deltas = new ArrayList<Integer>();
+		private final List<CompletableFuture<Progress>> results = new ArrayList<CompletableFuture<Progress>>();
+	}
+
+	private final Updater updater;
+	private final ExecutorService updatePool;
+	private final long flushMillis;
+
+	private final Map<List<String>, Batch> pending;		//Keyed by [title, category]
+	private final ScheduledExecutorService flusher;
+
+	private static final long CLOSE_WAIT_SECONDS = 30;		//How long close waits for combined increments already being sent
+
+	/**
+	 * @param updater
+	 * 	Sends the combined increments
+	 * @param threads
+	 * 	Combined increments sent at the same time (on threads of the coalescer's own, so an update that blocks on other storage work
+	 * 	never holds a thread that work needs)
+	 * @param flushMillis
+	 * 	Length of the interval increments are combined over
+	 */
+	public ProgressCoalescer(Updater updater, int threads, long flushMillis) {
+		this.updater = updater;
+		this.flushMillis = flushMillis;
+
+		final AtomicInteger count = new AtomicInteger();
+		this.updatePool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "progress-sender-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		this.pending = new HashMap<List<String>, Batch>();
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "progress-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Adds $delta to the increments of ($title, $category) waiting for the end of the interval
+	 * @return
+	 * 	Completes with this increment's part of the combined update once it is sent (null if it could not be sent)
+	 */
+	public CompletableFuture<Progress> increment(String title, String category, int delta) {
+		CompletableFuture<Progress> result = new CompletableFuture<Progress>();
+		List<String> key = Arrays.asList(title, category);
+		synchronized(this) {
+			Batch batch = this.pending.get(key);
+			if(batch == null) {
+				batch = new Batch();
+				this.pending.put(key, batch);
+				this.flusher.schedule(() -> this.updatePool.execute(() -> this.send(key)), this.flushMillis, TimeUnit.MILLISECONDS);
+			}
+			batch.deltas.add(delta);
+			batch.results.add(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Sends every waiting increment now, waits for those already being sent and stops the interval timer (the coalescer is not used after it is closed)
+	 */
+	public void close() {
+		this.flusher.shutdownNow();
+		List<List<String>> keys;
+		synchronized(this) {
+			keys = new ArrayList<List<String>>(this.pending.keySet());
+		}
+		for(List<String> key : keys) {
+			this.send(key);
+		}
+
+		this.updatePool.shutdown();
+		try {
+			if(!this.updatePool.awaitTermination(CLOSE_WAIT_SECONDS, TimeUnit.SECONDS)) {
+				System.err.println("[WARNING] Gave up waiting for progress updates to be sent.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Sends the combined increments of $key, then splits the result between the increments that were combined
+	 */
+	private void send(List<String> key) {
+		Batch batch;
+		synchronized(this) {
+			batch = this.pending.remove(key);
+		}
+		if(batch == null) return;		//Already sent by close
+
+		int total = 0;
+		for(int delta : batch.deltas) {
+			total += delta;
+		}
+
+		Progress combined = null;
+		try {
+			combined = this.updater.increment(key.get(0), key.get(1), total);
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not update progress of " + key.get(1) + ": " + key.get(0));
+			System.err.println(e.getMessage());
+		}
+
+		long running = (combined == null) ? 0 : combined.previousProg;
+		for(int i = 0; i < batch.deltas.size(); i++) {
+			if(combined == null) {
+				batch.results.get(i).complete(null);
+				continue;
+			}
+
+			Progress part = new Progress();
+			part.maxProg = combined.maxProg;
+			part.previousProg = (int) Math.min(running, combined.maxProg);
+			running += batch.deltas.get(i);
+			part.currentProg = (int) Math.min(running, combined.maxProg);
+			part.unlocked = part.previousProg < part.maxProg && part.currentProg >= part.maxProg;
+			batch.results.get(i).complete(part);
+		}
+	}
+}
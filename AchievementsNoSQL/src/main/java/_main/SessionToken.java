@@ -0,0 +1,110 @@
+/**
+ * Signed, expiring session tokens that let a remembered login start without the password.
+ *
+ * A token names its account and when it expires, signed (HMAC-SHA256) with a secret kept with the account by the storage. The expiry can
+ * be read without the secret, so a cached token is trusted straight away at startup and only checked against the account's secret in the
+ * background. Tokens are never stored by the storage, only their secret, so changing the secret ends every session of the account.
+ *
+ * Form: Base64url(username \n expiry millis) . Base64url(signature)
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+public final class SessionToken {
+
+	public static final int SECRET_BYTES = 32;
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	/**
+	 * Private constructor so this utility class cannot be instantiated.
+	 */
+	private SessionToken() {
+	}
+
+	/**
+	 * @return
+	 * 	A new random secret to sign an account's tokens with
+	 */
+	public static byte[] newSecret() {
+		byte[] secret = new byte[SECRET_BYTES];
+		RANDOM.nextBytes(secret);
+		return secret;
+	}
+
+	/**
+	 * Creates a token for $username that expires in $days
+	 * @param secret
+	 * 	The account's secret
+	 */
+	public static String create(String username, int days, byte[] secret) throws GeneralSecurityException {
+		long expires = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(days);
+		byte[] payload = (username + "\n" + expires).getBytes(StandardCharsets.UTF_8);
+		Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+		return base64.encodeToString(payload) + "." + base64.encodeToString(sign(payload, secret));
+	}
+
+	/**
+	 * Checks $token without the secret, as far as that can be done
+	 * @return
+	 * 	Whether $token is for $username and has not expired
+	 */
+	public static boolean isCurrent(String token, String username) {
+		String[] payload = payload(token);
+		return payload != null && payload[0].equals(username) && Long.parseLong(payload[1]) > System.currentTimeMillis();
+	}
+
+	/**
+	 * Checks $token against the account's secret
+	 * @return
+	 * 	Whether $token is for $username, has not expired and was signed with $secret
+	 */
+	public static boolean verify(String token, String username, byte[] secret) throws GeneralSecurityException {
+		if(secret == null || !isCurrent(token, username)) return false;
+		String[] parts = token.split("\\.");
+		Base64.Decoder base64 = Base64.getUrlDecoder();
+		return MessageDigest.isEqual(sign(base64.decode(parts[0]), secret), base64.decode(parts[1]));
+	}
+
+	/**
+	 * @return
+	 * 	[username, expiry millis] of $token, or null if it is not a token
+	 */
+	private static String[] payload(String token) {
+		if(token == null) return null;
+		String[] parts = token.split("\\.");
+		if(parts.length != 2) return null;
+		try {
+			String[] payload = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8).split("\n");
+			if(payload.length != 2) return null;
+			Long.parseLong(payload[1]);
+			return payload;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static byte[] sign(byte[] payload, byte[] secret) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+		return mac.doFinal(payload);
+	}
+}
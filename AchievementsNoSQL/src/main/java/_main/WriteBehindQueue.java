@@ -0,0 +1,207 @@
+/**
+ * Queues achievement image changes in memory and sends them to DynamoDB later.
+ *
+ * Repeated changes to the same (title, category) are coalesced, so only the latest image of an achievement is ever sent.
+ * The queue is flushed once it holds enough changes to keep every write in flight busy, every flush interval, and whenever a caller needs the
+ * table to be up to date (before reads and on shutdown). Flushes run one at a time, so changes reach the table in the order they were queued.
+ * New achievements are never queued: a create has to be a conditional put, so it cannot wait for a batch (see DynamoStorage.createAchievement).
+ *
+ * Copyright (c) 2020, Matthew Crabtree
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ *
+ * @author Matthew Crabtree
+ */
+
+package _main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+
+public class WriteBehindQueue {
+
+	/**
+	 * The latest queued image of an achievement
+	 */
+	private static class Pending {
+		private String imageURL = null;
+		private boolean needsImage = false;
+	}
+
+	private static final int QUEUED_PER_WRITE = 25;			//Changes queued per write in flight before a flush is started
+
+	private final AmazonDynamoDB client;
+	private final String tableName;
+	private final ExecutorService writePool;
+	private final int flushSize;
+	private final String needsImageValue;
+
+	private LinkedHashMap<List<String>, Pending> pending;		//Keyed by [title, category], in the order first queued
+	private final Object flushLock;
+	private final ScheduledExecutorService flusher;
+
+	/**
+	 * @param client
+	 * 	DynamoDB client to write with
+	 * @param tableName
+	 * 	The achievement table
+	 * @param writePool
+	 * 	Sends the updates
+	 * @param writesInFlight
+	 * 	Most updates sent at the same time
+	 * @param flushMillis
+	 * 	Most time a change waits in the queue
+	 * @param needsImageValue
+	 * 	Value of the sparse needsImage attribute for achievements without an image
+	 */
+	public WriteBehindQueue(AmazonDynamoDB client, String tableName, ExecutorService writePool, int writesInFlight, long flushMillis, String needsImageValue) {
+		this.client = client;
+		this.tableName = tableName;
+		this.writePool = writePool;
+		this.flushSize = QUEUED_PER_WRITE * writesInFlight;
+		this.needsImageValue = needsImageValue;
+
+		this.pending = new LinkedHashMap<List<String>, Pending>();
+		this.flushLock = new Object();
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "write-behind-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.flusher.scheduleWithFixedDelay(() -> this.flushQuietly(), flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Queues an image change (replacing any change already queued for the achievement)
+	 * @param needsImage
+	 * 	True iff $imageURL is the missing image text
+	 */
+	public void setImage(String title, String category, String imageURL, boolean needsImage) {
+		int size;
+		synchronized(this) {
+			List<String> key = Arrays.asList(title, category);
+			Pending write = this.pending.get(key);
+			if(write == null) {
+				write = new Pending();
+				this.pending.put(key, write);
+			}
+			write.imageURL = imageURL;
+			write.needsImage = needsImage;
+			size = this.pending.size();
+		}
+		this.flushIfFull(size);
+	}
+
+	/**
+	 * Writes everything queued so far, returning once it is in the table (or has failed)
+	 */
+	public void flush() {
+		synchronized(this.flushLock) {
+			LinkedHashMap<List<String>, Pending> writes;
+			synchronized(this) {
+				if(this.pending.isEmpty()) return;
+				writes = this.pending;
+				this.pending = new LinkedHashMap<List<String>, Pending>();
+			}
+			this.write(writes);
+		}
+	}
+
+	/**
+	 * Stops the flush timer and writes anything still queued
+	 */
+	public void close() {
+		this.flusher.shutdownNow();
+		this.flush();
+	}
+
+	/**
+	 * Starts a flush in the background once the queue can keep every write in flight busy.
+	 * Callers that get far ahead of the flushes flush themselves, so the queue cannot grow without bound.
+	 */
+	private void flushIfFull(int size) {
+		if(size >= this.flushSize * 4) this.flush();
+		else if(size >= this.flushSize) this.flusher.execute(() -> this.flushQuietly());
+	}
+
+	private void flushQuietly() {
+		try {
+			this.flush();
+		} catch (Exception e) {
+			System.err.println("[ERROR] Could not flush queued image changes.");
+			System.err.println(e.getMessage());
+		}
+	}
+
+	/**
+	 * Sends each image change as its own update (BatchWriteItem cannot update), on the write pool
+	 */
+	private void write(LinkedHashMap<List<String>, Pending> writes) {
+		List<Future<?>> updates = new ArrayList<Future<?>>(writes.size());
+		for(Map.Entry<List<String>, Pending> write : writes.entrySet()) {
+			UpdateItemRequest request = this.imageUpdate(write.getKey().get(0), write.getKey().get(1), write.getValue());
+			updates.add(this.writePool.submit(() -> this.client.updateItem(request)));
+		}
+
+		int changed = 0, deleted = 0, failed = 0;
+		for(int i = 0; i < updates.size(); i++) {
+			try {
+				updates.get(i).get();
+				changed++;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				System.err.println("[ERROR] Interrupted while writing queued image changes.");
+				return;
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof ConditionalCheckFailedException) {
+					deleted++;		//The achievement was deleted since its image was changed, so it is not made again
+				} else {
+					failed++;
+					System.err.println("[ERROR] Could not update image of queued achievement.");
+					System.err.println(e.getCause().getMessage());
+				}
+			}
+		}
+
+		if(failed == 0) System.err.println("[SUCCESS] Wrote " + changed + " queued image changes" + ((deleted > 0) ? " (" + deleted + " achievements were deleted first)." : "."));
+		else System.err.println("[ERROR] Could not write " + failed + " queued image changes.");
+	}
+
+	private UpdateItemRequest imageUpdate(String title, String category, Pending pending) {
+		Map<String, AttributeValue> key = new TreeMap<String, AttributeValue>();
+		key.put("title", new AttributeValue().withS(title));
+		key.put("category", new AttributeValue().withS(category));
+
+		Map<String, AttributeValue> values = new TreeMap<String, AttributeValue>();
+		values.put(":i", new AttributeValue().withS(pending.imageURL));
+		UpdateItemRequest request = new UpdateItemRequest()
+				.withTableName(this.tableName)
+				.withKey(key)
+				.withConditionExpression("attribute_exists(title)")
+				.withExpressionAttributeValues(values);
+		if(pending.needsImage) {
+			values.put(":n", new AttributeValue().withS(this.needsImageValue));
+			request.withUpdateExpression("set imageURL = :i, needsImage = :n");
+		} else {
+			request.withUpdateExpression("set imageURL = :i remove needsImage");
+		}
+		return request;
+	}
+}
@@ -13,6 +13,7 @@
 package account;
 
 import _main.AchieveSettings;
+import _main.AsyncStorage;
 import mainmenu.MainMenuController;
 import mainmenu.MainMenuController1;
 import mainmenu.MainMenuView;
@@ -56,20 +57,22 @@ public final class AccountController1 implements AccountController {
 			passwordStr += c;
 		}
     	
-    	//Check login with database
-    	settings.storage.login(username, passwordStr, settings);
-    	
-    	//Save settings iff login was successful
-    	if(settings.getIsLoggedIn() == true) {
-    		settings.setUsername(username);
-    		settings.setRememberLogin(rememberMe);
-    		if(rememberMe) {
-    			settings.setPassword(passwordStr);
+    	//Check login with database (off the event thread, as hashing the password is deliberately slow)
+    	AsyncStorage.onEventThread(settings.asyncStorage.login(username, passwordStr), loggedIn -> {
+    		//Save settings iff login was successful (the session token is remembered rather than the password)
+    		if(settings.getIsLoggedIn() == true) {
+    			settings.setUsername(username);
+    			settings.setRememberLogin(rememberMe);
+    			settings.setPassword("");
+    			if(!rememberMe) {
+    				settings.setSessionToken("");
+    				settings.setSessionAccountType("");
+    			}
+    			this.view.updateLogoutAllowed(true);	//Make logout button available
     		}
-    		this.view.updateLogoutAllowed(true);	//Make logout button available
-    	}
-    	
-    	settings.saveAccountConfig();
+    		
+    		settings.saveAccountConfig();
+    	});
     }
     
     @Override
@@ -78,6 +81,8 @@ public final class AccountController1 implements AccountController {
     	 * Change saved settings
     	 */
     	settings.setPassword("");
+    	settings.setSessionToken("");
+    	settings.setSessionAccountType("");
     	settings.setRememberLogin(false);
     	settings.setIsLoggedIn(false);
     	settings.saveAccountConfig();
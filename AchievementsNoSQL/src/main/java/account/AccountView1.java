@@ -104,12 +104,11 @@ public final class AccountView1 extends JFrame implements AccountView {
         // Set up the GUI widgets --------------------------------------------
 
         /*
-         * Checks the remember login box based on local settings and fills in password if it's true
+         * Checks the remember login box based on local settings (the password itself is never remembered)
          * 
          * Logout button will be greyed out if not logged in
          */
         this.cRememberMe.setSelected(settings.getRememberLogin());
-        if(settings.getRememberLogin()) this.tPassword.setText(settings.getPassword());
         if(!settings.getIsLoggedIn()) this.bLogout.setEnabled(false);
         
         
@@ -13,8 +13,10 @@
 package achievement_image;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 import _main.AchieveSettings;
+import _main.AsyncStorage;
 import upload_image.UploadImageView1;
 
 public final class AchieveImageController1 implements AchieveImageController {
@@ -43,18 +45,12 @@ public final class AchieveImageController1 implements AchieveImageController {
 	
     @Override
     public void processUploadEvent(AchieveSettings settings, String title, String category, String imageURL, File image) {
-    	if(settings.getUseLocal()) {
-    		//Create achievement and image file
-    		//TODO: Upload achievement to file system
-    	} else {
-    		//Upload image to database and generate a new imageURL
-        	if(imageURL == null && image != null) {
-        		imageURL = settings.storage.createImageURL(title, category, image);
-        	}
-        	//Upload achievement to database
-    		settings.storage.changeAchievementImage(title, category, imageURL);
-    	}
-    	this.processBackEvent(settings);
+    	//Upload image and generate a new imageURL (copied into local storage when useLocal is set)
+    	CompletableFuture<String> upload = (imageURL == null && image != null)
+    			? settings.asyncStorage.createImageURL(title, category, image) : CompletableFuture.completedFuture(imageURL);
+    	//Update achievement within database or local storage
+    	CompletableFuture<Void> change = upload.thenCompose(url -> settings.asyncStorage.changeAchievementImage(title, category, url));
+    	AsyncStorage.onEventThread(change, changed -> this.processBackEvent(settings));
     }
     
     @Override
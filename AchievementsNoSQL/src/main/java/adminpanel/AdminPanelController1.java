@@ -13,6 +13,7 @@
 package adminpanel;
 
 import _main.AchieveSettings;
+import _main.AsyncStorage;
 import db_options.DbOptionsController;
 import db_options.DbOptionsController1;
 import db_options.DbOptionsView;
@@ -39,12 +40,12 @@ public final class AdminPanelController1 implements AdminPanelController {
 
     @Override
     public void processCreateDbEvent(AchieveSettings settings) {
-    	settings.storage.createDatabase();
+    	AsyncStorage.onEventThread(settings.asyncStorage.createDatabase(), created -> {});
     }
     
     @Override
     public void processCreateKeyEvent(AchieveSettings settings) {
-    	settings.storage.createKey();
+    	AsyncStorage.onEventThread(settings.asyncStorage.createKey(), created -> {});
     }
     
     @Override
@@ -14,6 +14,7 @@
 package categories;
 
 import _main.AchieveSettings;
+import _main.AsyncStorage;
 import category.CategoryController;
 import category.CategoryController1;
 import category.CategoryView;
@@ -57,11 +58,14 @@ public final class CategoriesController1 implements CategoriesController {
     
     @Override
     public void processCategoryEvent(AchieveSettings settings, String category, double percentage) {
-    	CategoryView view = new CategoryView1(settings, category, percentage);
-        CategoryController controller = new CategoryController1(view);
-        
-        view.registerObserver(controller);
-    	this.view.closeWindow();
+    	//Read the achievements off the event thread, then open the window with them (their images load once it is open)
+    	AsyncStorage.onEventThread(settings.asyncStorage.getAchievements(category), achievements -> {
+    		CategoryView view = new CategoryView1(settings, category, percentage, achievements);
+    		CategoryController controller = new CategoryController1(view);
+    		
+    		view.registerObserver(controller);
+    		this.view.closeWindow();
+    	});
     }
     
     @Override
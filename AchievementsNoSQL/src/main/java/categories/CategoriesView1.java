@@ -59,7 +59,7 @@ public final class CategoriesView1 extends JFrame implements CategoriesView {
     /**
      * Default constructor.
      */
-    public CategoriesView1(AchieveSettings settings) {
+    public CategoriesView1(AchieveSettings settings, Map<String, Double> categories) {
         // Create the JFrame being extended
 
         /*
@@ -95,7 +95,7 @@ public final class CategoriesView1 extends JFrame implements CategoriesView {
             achieveConstraints.insets = new Insets(3,3,3,3);
         
         //Add widgets to achievePanel
-        this.categories = this.settings.storage.getCategories();
+        this.categories = categories;
         int achieveWeightX = 0, achieveWeightY = 0;
         for(Map.Entry<String, Double> category: categories.entrySet()) {
         	JButton bCategory = new JButton(category.getKey() + " [" + String.format("%.2f", 100 * category.getValue()) + "%]");
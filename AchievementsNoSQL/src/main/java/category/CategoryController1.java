@@ -14,6 +14,7 @@
 package category;
 
 import _main.AchieveSettings;
+import _main.AsyncStorage;
 import _main.AchieveStorage.Achievement;
 import achievement.AchievementController;
 import achievement.AchievementController1;
@@ -66,11 +67,13 @@ public final class CategoryController1 implements CategoryController {
     
     @Override
     public void processBackEvent(AchieveSettings settings) {
-    	CategoriesView view = new CategoriesView1(settings);
-        CategoriesController controller = new CategoriesController1(view);
-        
-        view.registerObserver(controller);
-        this.view.closeWindow();
+    	AsyncStorage.onEventThread(settings.asyncStorage.getCategories(), categories -> {
+    		CategoriesView view = new CategoriesView1(settings, categories);
+    		CategoriesController controller = new CategoriesController1(view);
+    		
+    		view.registerObserver(controller);
+    		this.view.closeWindow();
+    	});
     }
 
 }
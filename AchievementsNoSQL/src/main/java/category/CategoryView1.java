@@ -17,16 +17,14 @@ import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
-import java.awt.Image;
 import java.awt.Insets;
+import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
-import java.io.File;
-import java.net.URL;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
-import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -34,10 +32,12 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
+import javax.swing.JViewport;
 import javax.swing.border.EmptyBorder;
 
 import _main.AchieveSettings;
 import _main.AchieveStorage.Achievement;
+import _main.ImageLoader;
 
 public final class CategoryView1 extends JFrame implements CategoryView {
 
@@ -65,11 +65,18 @@ public final class CategoryView1 extends JFrame implements CategoryView {
     private final JButton bDelete, bBack;
     private Map<String, JButton> bAchievements;
     private Map<String, Achievement> achievements;
+    
+    /**
+     * Loads the achievement images in the background
+     */
+    private static final int IMAGE_SIZE_PIXELS = 64;
+    private final ImageLoader images;
+    private final Map<JButton, ImageLoader.Request> imageRequests;
 
     /**
      * Default constructor.
      */
-    public CategoryView1(AchieveSettings settings, String category, double percentage) {
+    public CategoryView1(AchieveSettings settings, String category, double percentage, Map<String, Achievement> achievements) {
         // Create the JFrame being extended
 
         /*
@@ -112,7 +119,12 @@ public final class CategoryView1 extends JFrame implements CategoryView {
         /*
          * Add widgets to achievement panel
          */
-        this.achievements = settings.storage.getAchievements(category);
+        this.achievements = achievements;
+        this.images = new ImageLoader(settings);
+        this.imageRequests = new HashMap<JButton, ImageLoader.Request>();
+        final ImageIcon lockedIcon = ImageLoader.loadFile(settings.lockedImageAddress, IMAGE_SIZE_PIXELS);
+        final ImageIcon missingIcon = ImageLoader.loadFile(settings.missingImageAddress, IMAGE_SIZE_PIXELS);
+        final ImageIcon placeholderIcon = ImageLoader.placeholder(IMAGE_SIZE_PIXELS);
         int achieveWeightX = 0, achieveWeightY = 0;
         for(Map.Entry<String, Achievement> achievementPair : achievements.entrySet()) {
         	Achievement achievement = achievementPair.getValue();
@@ -125,22 +137,19 @@ public final class CategoryView1 extends JFrame implements CategoryView {
         	pAchievement.setValue(achievement.currentProg);
         	pAchievement.setStringPainted(true);
 
-        	ImageIcon iAchievement = new ImageIcon();
-        	try {
-        		if (achievement.currentProg < achievement.maxProg) {
-        			iAchievement = new ImageIcon(ImageIO.read(new File(settings.lockedImageAddress)).getScaledInstance(64, 64, Image.SCALE_FAST));
-        		} else {
-        			if(!achievement.imageURL.equals(settings.storage.MISSING_IMAGE_TEXT)) {
-            			iAchievement = new ImageIcon(ImageIO.read(new URL(achievement.imageURL)).getScaledInstance(64, 64, Image.SCALE_FAST));
-            		}
-            		else {
-            			iAchievement = new ImageIcon(ImageIO.read(new File(settings.missingImageAddress)).getScaledInstance(64, 64, Image.SCALE_FAST));
-            		}
-        		}
-			} catch (Exception e) {
-				System.err.println("[WARNING] Could not load image for achievement: " + achievementPair.getKey());
-				System.err.println(e.getMessage());
-			}
+        	/*
+        	 * Locked and missing images are shown straight away, downloaded images start as a placeholder and are filled in as they arrive
+        	 */
+        	JLabel lImage = new JLabel();
+        	String imageURL = null;
+        	if (achievement.currentProg < achievement.maxProg) {
+        		lImage.setIcon(lockedIcon);
+        	} else if(!achievement.imageURL.equals(settings.storage.MISSING_IMAGE_TEXT)) {
+        		lImage.setIcon(placeholderIcon);
+        		imageURL = achievement.imageURL;
+        	} else {
+        		lImage.setIcon(missingIcon);
+        	}
         	
         	/*
         	 * Create panel to add to button
@@ -152,7 +161,7 @@ public final class CategoryView1 extends JFrame implements CategoryView {
         	/*
         	 * Add widgets to panel to add to button
         	 */
-        	interiorPanel.add(new JLabel(iAchievement), interiorConstraints);
+        	interiorPanel.add(lImage, interiorConstraints);
         		interiorConstraints.gridx = 1;
         	interiorPanel.add(lAchievement, interiorConstraints);
         		interiorConstraints.gridx = 0;
@@ -162,6 +171,9 @@ public final class CategoryView1 extends JFrame implements CategoryView {
         	bAchievement.add(interiorPanel);
         	
         	this.bAchievements.put(achievementPair.getKey(), bAchievement);
+        	if(imageURL != null) {
+        		this.imageRequests.put(bAchievement, this.images.load(imageURL, IMAGE_SIZE_PIXELS, icon -> lImage.setIcon((icon == null) ? missingIcon : icon)));
+        	}
         		achieveConstraints.gridx = achieveWeightX;
         		achieveConstraints.gridy = achieveWeightY;
         	achievePanel.add(bAchievement, achieveConstraints);
@@ -177,6 +189,7 @@ public final class CategoryView1 extends JFrame implements CategoryView {
          * Make achievement panel scrollable
          */
         JScrollPane achieveScrollPane = new JScrollPane(achievePanel, JScrollPane.VERTICAL_SCROLLBAR_ALWAYS, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        JViewport achieveViewport = achieveScrollPane.getViewport();
         
         
         /*
@@ -221,6 +234,11 @@ public final class CategoryView1 extends JFrame implements CategoryView {
         	achievementButton.addActionListener(this);
         }
         
+        /*
+         * Load the images of the tiles in view first (the viewport changes when it is scrolled or resized)
+         */
+        achieveViewport.addChangeListener(event -> this.updateVisibleTiles(achieveViewport));
+        
         // Set up the main application window --------------------------------
 
         /*
@@ -232,7 +250,7 @@ public final class CategoryView1 extends JFrame implements CategoryView {
         this.setLocation(dim.width/2-this.getSize().width/2, dim.height/2-this.getSize().height/2);
         this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         this.setVisible(true);
-        
+        this.updateVisibleTiles(achieveViewport);
 
     }
 
@@ -247,6 +265,25 @@ public final class CategoryView1 extends JFrame implements CategoryView {
     	this.dispose();
     }
     
+    /**
+     * Stops loading images once the window is gone
+     */
+    @Override
+    public void dispose() {
+    	this.images.close();
+    	super.dispose();
+    }
+    
+    /**
+     * Marks which tiles with images still loading are in $viewport
+     */
+    private void updateVisibleTiles(JViewport viewport) {
+    	Rectangle view = viewport.getViewRect();
+    	for(Map.Entry<JButton, ImageLoader.Request> imageRequest : this.imageRequests.entrySet()) {
+    		imageRequest.getValue().setVisible(imageRequest.getKey().getBounds().intersects(view));
+    	}
+    }
+    
     @Override
     public void actionPerformed(ActionEvent event) {
         /*
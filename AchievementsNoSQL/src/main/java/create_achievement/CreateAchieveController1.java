@@ -13,8 +13,10 @@
 package create_achievement;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 import _main.AchieveSettings;
+import _main.AsyncStorage;
 import categories.CategoriesController;
 import categories.CategoriesController1;
 import categories.CategoriesView;
@@ -47,29 +49,27 @@ public final class CreateAchieveController1 implements CreateAchieveController {
 	
     @Override
     public void processCreateEvent(AchieveSettings settings, String title, String description, int maxProg, String category, String imageURL, File image) {
-    	if (title != null && category != null && settings.storage.isUnique(title, category)) {
-    		if(settings.getUseLocal()) {
-    			//Create achievement and image file
-    			//TODO: Upload achievement to file system
-    		} else {
-    			//Upload image to database and generate a new imageURL
-        		if(imageURL == null && image != null) {
-        			imageURL = settings.storage.createImageURL(title, category, image);
-        		}
-        		//Upload achievement to database
-    			settings.storage.createAchievement(title, category, description, maxProg, imageURL);
-    		}
+    	if (title != null && category != null) {
+    		//Upload image and generate a new imageURL (copied into local storage when useLocal is set)
+    		CompletableFuture<String> upload = (imageURL == null && image != null)
+    				? settings.asyncStorage.createImageURL(title, category, image) : CompletableFuture.completedFuture(imageURL);
+    		//Upload achievement to database or local storage (only if the title is not taken within the category)
+    		CompletableFuture<?> create = upload.thenCompose(url -> settings.asyncStorage.createAchievement(title, category, description, maxProg, url));
+    		AsyncStorage.onEventThread(create, created -> this.processBackEvent(settings));
+    	} else {
+    		this.processBackEvent(settings);
     	}
-    	this.processBackEvent(settings);
     }
     
     @Override
     public void processBackEvent(AchieveSettings settings) {
-    	CategoriesView view = new CategoriesView1(settings);
-        CategoriesController controller = new CategoriesController1(view);
-        
-        view.registerObserver(controller);
-        this.view.closeWindow();
+    	AsyncStorage.onEventThread(settings.asyncStorage.getCategories(), categories -> {
+    		CategoriesView view = new CategoriesView1(settings, categories);
+    		CategoriesController controller = new CategoriesController1(view);
+    		
+    		view.registerObserver(controller);
+    		this.view.closeWindow();
+    	});
     }
 
 }
@@ -12,7 +12,11 @@
 
 package db_options;
 
+import java.util.concurrent.CompletableFuture;
+
 import _main.AchieveSettings;
+import _main.AchieveStorage;
+import _main.AsyncStorage;
 import adminpanel.AdminPanelController;
 import adminpanel.AdminPanelController1;
 import adminpanel.AdminPanelView;
@@ -45,6 +49,12 @@ public final class DbOptionsController1 implements DbOptionsController {
     public void processUseFilesEvent(AchieveSettings settings, boolean useLocal) {
     	settings.setUseLocal(useLocal);
     	settings.saveDbConfig();
+    	
+    	//Switch storage (AWS storage connects once its settings are saved), closing the old one off the event thread
+    	AchieveStorage previous = settings.storage;
+    	settings.storage = settings.createStorage();
+    	CompletableFuture<Void> closed = settings.asyncStorage.closeStorage(previous);
+    	AsyncStorage.onEventThread(useLocal ? closed.thenCompose(done -> settings.asyncStorage.connect()) : closed, connected -> {});
     	this.view.updateAwsFieldsAllowed(!useLocal);
     }
     
@@ -69,9 +79,7 @@ public final class DbOptionsController1 implements DbOptionsController {
     	
     	//Save any changes to the database settings and attempt connections
     	settings.saveDbConfig();	
-    	settings.storage.connectDatabase(settings);
-    	settings.storage.connectKMS(settings);
-    	settings.storage.connectDrive(settings);
+    	AsyncStorage.onEventThread(settings.asyncStorage.connect(), connected -> {});
     }
 
     @Override
@@ -13,6 +13,7 @@
 package delete_achievement;
 
 import _main.AchieveSettings;
+import _main.AsyncStorage;
 import achievement.AchievementView;
 
 public final class DeleteAchieveController1 implements DeleteAchieveController {
@@ -41,11 +42,11 @@ public final class DeleteAchieveController1 implements DeleteAchieveController {
     	/*
     	 * Delete achievement
     	 */
-    	settings.storage.deleteAchievement(title, category);
-
-    	//Close window
-    	this.parentView.closeWindow();
-        this.view.closeWindow();
+    	AsyncStorage.onEventThread(settings.asyncStorage.deleteAchievement(title, category), deleted -> {
+    		//Close window
+    		this.parentView.closeWindow();
+    		this.view.closeWindow();
+    	});
     }
 
     @Override
@@ -13,6 +13,7 @@
 package delete_category;
 
 import _main.AchieveSettings;
+import _main.AsyncStorage;
 import category.CategoryController;
 
 public final class DeleteCategoryController1 implements DeleteCategoryController {
@@ -41,11 +42,11 @@ public final class DeleteCategoryController1 implements DeleteCategoryController
     	/*
     	 * Delete achievement
     	 */
-    	settings.storage.deleteCategory(category);
-
-    	//Close window
-    	this.parentController.processBackEvent(settings);
-        this.view.closeWindow();
+    	AsyncStorage.onEventThread(settings.asyncStorage.deleteCategory(category), result -> {
+    		//Close window
+    		this.parentController.processBackEvent(settings);
+    		this.view.closeWindow();
+    	});
     }
 
     @Override
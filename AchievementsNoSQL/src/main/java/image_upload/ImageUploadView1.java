@@ -63,7 +63,7 @@ public final class ImageUploadView1 extends JFrame implements ImageUploadView {
     /**
      * Default constructor.
      */
-    public ImageUploadView1(AchieveSettings settings) {
+    public ImageUploadView1(AchieveSettings settings, Set<AchievementPair> achievements) {
         // Create the JFrame being extended
 
         /*
@@ -74,7 +74,7 @@ public final class ImageUploadView1 extends JFrame implements ImageUploadView {
         
         //Set local settings
     	this.settings = settings;
-    	this.achievements = settings.storage.getNoImageAchievements();
+    	this.achievements = achievements;
 
         // Set up the GUI widgets --------------------------------------------
 
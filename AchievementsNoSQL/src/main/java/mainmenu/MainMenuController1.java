@@ -13,6 +13,7 @@
 package mainmenu;
 
 import _main.AchieveSettings;
+import _main.AsyncStorage;
 import account.AccountController;
 import account.AccountController1;
 import account.AccountView;
@@ -61,22 +62,28 @@ public final class MainMenuController1 implements MainMenuController {
     
     @Override
     public void processCategoriesEvent(AchieveSettings settings) {
-    	CategoriesView view = new CategoriesView1(settings);
-    	CategoriesController controller = new CategoriesController1(view);
-    	
-    	view.registerObserver(controller);
-    	
-    	this.view.closeWindow();
+    	//Read the categories off the event thread, then open the window with them
+    	AsyncStorage.onEventThread(settings.asyncStorage.getCategories(), categories -> {
+    		CategoriesView view = new CategoriesView1(settings, categories);
+    		CategoriesController controller = new CategoriesController1(view);
+    		
+    		view.registerObserver(controller);
+    		
+    		this.view.closeWindow();
+    	});
     }
     
     @Override
     public void processImageRequestEvent(AchieveSettings settings) {
-    	ImageUploadView view = new ImageUploadView1(settings);
-    	ImageUploadController controller = new ImageUploadController1(view);
-    	
-    	view.registerObserver(controller);
-    	
-    	this.view.closeWindow();
+    	//Read the achievements without an image off the event thread, then open the window with them
+    	AsyncStorage.onEventThread(settings.asyncStorage.getNoImageAchievements(), achievements -> {
+    		ImageUploadView view = new ImageUploadView1(settings, achievements);
+    		ImageUploadController controller = new ImageUploadController1(view);
+    		
+    		view.registerObserver(controller);
+    		
+    		this.view.closeWindow();
+    	});
     }
     
     @Override
@@ -40,6 +40,25 @@ public interface MainMenuView extends ActionListener {
      *            true iff create is allowed
      */
     void updateImageRequestAllowed(boolean allowed);
+    
+    /**
+     * Updates display of whether the storage is still connecting; while it is,
+     * only database options and quit are allowed.
+     * 
+     * @param connecting
+     *            true iff the storage is still connecting
+     */
+    void updateConnecting(boolean connecting);
+    
+    /**
+     * Updates display of whether a backend service is available.
+     * 
+     * @param service
+     *            name of the service
+     * @param available
+     *            true iff the service connected
+     */
+    void updateServiceAvailable(String service, boolean available);
 
     /**
      * Closes the window
@@ -12,14 +12,18 @@
 
 package mainmenu;
 
+import java.awt.BorderLayout;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.border.EmptyBorder;
 
@@ -47,6 +51,13 @@ public final class MainMenuView1 extends JFrame implements MainMenuView {
      * Create and Cancel buttons
      */
     private final JButton bAccount, bCategories, bImageRequest, bDatabase, bQuit;
+    
+    /**
+     * Connection status of the backend services
+     */
+    private final JLabel lStatus;
+    private final Map<String, String> serviceStatus;
+    private boolean connecting;
 
     /**
      * Useful constants.
@@ -78,25 +89,14 @@ public final class MainMenuView1 extends JFrame implements MainMenuView {
         this.bImageRequest = new JButton("Image Requests");
         this.bDatabase = new JButton("Database Options");
         this.bQuit = new JButton("Quit");
+        this.lStatus = new JLabel(" ");
+        this.serviceStatus = new LinkedHashMap<String, String>();
+        this.connecting = false;
 
         // Set up the GUI widgets --------------------------------------------
 
-        /*
-         * Account button will be disabled if local filesystem is being used
-         * 
-         * Categories and Image request will be disabled if not logged in
-         * 
-         * Categories will be disabled if the account is an artist account
-         */
-        if(settings.getUseLocal()) {
-        	this.bAccount.setEnabled(false);
-        } else if (!settings.getIsLoggedIn()) {
-        	this.bCategories.setEnabled(false);
-        	this.bImageRequest.setEnabled(false);
-        } else if (settings.getAccountType().equals("artist")) {
-        	this.bCategories.setEnabled(false);
-        }
-        
+        this.updateButtons();
+
 
         /*
          * Create main button panel
@@ -122,6 +122,8 @@ public final class MainMenuView1 extends JFrame implements MainMenuView {
          * and top to bottom
          */
         this.add(buttonPanel);
+        this.lStatus.setBorder(new EmptyBorder(0,10,10,10));
+        this.add(this.lStatus, BorderLayout.SOUTH);
 
         // Set up the observers ----------------------------------------------
 
@@ -171,6 +173,50 @@ public final class MainMenuView1 extends JFrame implements MainMenuView {
 
     }
     
+    @Override
+    public void updateConnecting(boolean connecting) {
+    	
+    	this.connecting = connecting;
+    	this.updateButtons();
+    	this.updateStatus();
+    	
+    }
+    
+    @Override
+    public void updateServiceAvailable(String service, boolean available) {
+    	
+    	this.serviceStatus.put(service, available ? "connected" : "unavailable");
+    	this.updateStatus();
+    	
+    }
+    
+    /**
+     * Account button will be disabled if local filesystem is being used
+     * 
+     * Categories and Image request will be disabled if not logged in
+     * 
+     * Categories will be disabled if the account is an artist account
+     * 
+     * Everything but database options and quit will be disabled while the storage is connecting
+     */
+    private void updateButtons() {
+    	this.bAccount.setEnabled(!this.connecting && !this.settings.getUseLocal());
+    	this.bImageRequest.setEnabled(!this.connecting && (this.settings.getUseLocal() || this.settings.getIsLoggedIn()));
+    	this.bCategories.setEnabled(!this.connecting && (this.settings.getUseLocal() || (this.settings.getIsLoggedIn() && !this.settings.getAccountType().equals("artist"))));
+    }
+    
+    /**
+     * Shows each service as connected or unavailable, and any still connecting
+     */
+    private void updateStatus() {
+    	StringBuilder status = new StringBuilder("<html>");
+    	for(Map.Entry<String, String> service : this.serviceStatus.entrySet()) {
+    		status.append(service.getKey()).append(": ").append(service.getValue()).append("<br>");
+    	}
+    	if(this.connecting) status.append("Connecting...");
+    	this.lStatus.setText(status.append("</html>").toString());
+    }
+    
     public void closeWindow() {
     	this.dispose();
     }
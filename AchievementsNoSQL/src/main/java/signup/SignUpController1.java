@@ -15,6 +15,8 @@ package signup;
 import java.util.Arrays;
 
 import _main.AchieveSettings;
+import _main.AsyncStorage;
+import _main.AchieveStorage.CreateResult;
 import account.AccountController;
 import account.AccountController1;
 import account.AccountView;
@@ -46,9 +48,14 @@ public final class SignUpController1 implements SignUpController {
     		for(char c : password1) {
     			password += c;
     		}
-    		if(settings.storage.createAccount(username, email, password, settings)) {
-    			this.processBackEvent(settings);
-    		}
+    		AsyncStorage.onEventThread(settings.asyncStorage.createAccount(username, email, password), result -> {
+    			if(result == CreateResult.CREATED) {
+    				System.err.println("[SUCCESS] Account has been created.");
+    				this.processBackEvent(settings);
+    			} else if(result == CreateResult.ALREADY_EXISTS) {
+    				System.err.println("[ERROR] Username has been taken.");
+    			}
+    		});
     	} else {
     		System.err.println("[WARNING] Passwords do not match.");
     	}